@@ -0,0 +1,394 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Microbenchmarks for the hot paths of VirtualNumpad. Each benchmark runs warmup and
+ * measurement iterations of fixed length and reports the average time per
+ * operation as CSV, so results can be compared between releases.
+ * Run with packaging/benchmark.sh, this class is not part of the app
+ */
+public final class VirtualNumpadBenchmarks {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final long ITERATION_NANOS = 200_000_000L;
+    // Operations run in batches of about this long between clock reads
+    private static final long BATCH_NANOS = 100_000L;
+    private static final int MAX_BATCH = 1 << 20;
+    private static final int ALLOCATION_OPERATIONS = 10_000;
+
+    // Results are folded in here so the JIT cannot drop the work
+    private static volatile long blackhole;
+
+    private interface Operation {
+        long run() throws Exception;
+    }
+
+    /**
+     * Usage: VirtualNumpadBenchmarks [results.csv]
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        run(args.length > 0 ? new File(args[0]) : null);
+    }
+
+    private static void run(File output) {
+        List<String> results = new ArrayList<>();
+        results.add("benchmark,mode,unit,score,error,iterations");
+
+        // Keep log writes out of the measured operations
+        VirtualNumpad.Log.setInfoEnabled(false);
+
+        try {
+            benchmarkButtonPaint(results);
+            benchmarkBackgroundPaint(results);
+            benchmarkKeyResolution(results);
+            benchmarkLanguageParsing(results);
+            benchmarkLanguageStartup(results);
+            benchmarkTranslationLookup(results);
+        } catch (Exception e) {
+            VirtualNumpad.Log.error("Benchmark failed", e);
+        }
+
+        for (String line : results) {
+            System.out.println(line);
+        }
+
+        if (output != null) {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"))) {
+                for (String line : results) {
+                    writer.println(line);
+                }
+                System.out.println("Benchmark results written to " + output.getAbsolutePath());
+            } catch (IOException e) {
+                VirtualNumpad.Log.error("Error writing benchmark results: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void benchmarkButtonPaint(List<String> results) throws Exception {
+        VirtualNumpad.PadButtonUI ui = new VirtualNumpad.PadButtonUI(new VirtualNumpad.PaintStats());
+        BufferedImage target = new BufferedImage(120, 90, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = target.createGraphics();
+
+        VirtualNumpad.PadButton numButton = new VirtualNumpad.PadButton(VirtualNumpad.ButtonSkinCache.KIND_NUMPAD, ui);
+        numButton.setText("7");
+        numButton.setFont(VirtualNumpad.NUM_BUTTON_FONT);
+        numButton.setSize(120, 90);
+
+        VirtualNumpad.PadButton labelButton = new VirtualNumpad.PadButton(VirtualNumpad.ButtonSkinCache.KIND_NUMPAD, ui);
+        labelButton.setText("替换");
+        labelButton.setFont(VirtualNumpad.SHORTCUT_BUTTON_FONT);
+        labelButton.setSize(120, 90);
+
+        ui.configure(VirtualNumpad.Palette.LIGHT, true, false);
+        results.add(measure("buttonPaint.number", () -> {
+            numButton.paintComponent(g2);
+            return target.getRGB(60, 45);
+        }));
+
+        ui.configure(VirtualNumpad.Palette.DARK, false, true);
+        results.add(measure("buttonPaint.cjkFrosted", () -> {
+            labelButton.paintComponent(g2);
+            return target.getRGB(60, 45);
+        }));
+
+        ButtonModel model = numButton.getModel();
+        results.add(measure("buttonPaint.hover", () -> {
+            model.setRollover(!model.isRollover());
+            numButton.paintComponent(g2);
+            return target.getRGB(60, 45);
+        }));
+
+        // The pointer sweeping across a full grid: every move rolls one button off and the next on
+        ui.configure(VirtualNumpad.Palette.LIGHT, true, false);
+        VirtualNumpad.PadButton[] grid = new VirtualNumpad.PadButton[16];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = new VirtualNumpad.PadButton(VirtualNumpad.ButtonSkinCache.KIND_NUMPAD, ui);
+            grid[i].setText(String.valueOf(i));
+            grid[i].setFont(VirtualNumpad.NUM_BUTTON_FONT);
+            grid[i].setSize(120, 90);
+        }
+        int[] pointer = new int[1];
+        Operation hoverStorm = () -> {
+            VirtualNumpad.PadButton left = grid[pointer[0]++ & 15];
+            VirtualNumpad.PadButton entered = grid[pointer[0] & 15];
+            left.getModel().setRollover(false);
+            entered.getModel().setRollover(true);
+            left.paintComponent(g2);
+            entered.paintComponent(g2);
+            return target.getRGB(60, 45);
+        };
+        results.add(measure("buttonPaint.hoverStorm", hoverStorm));
+        double stormBytes = measureAllocation(results, "buttonPaint.hoverStorm", hoverStorm);
+
+        // Java2D allocates a little per drawGlyphVector call, the UI itself should add nothing on top
+        VirtualNumpad.LabelLayout label = ui.labelLayout("7", VirtualNumpad.NUM_BUTTON_FONT, g2.getFontRenderContext());
+        double glyphBytes = measureAllocation(results, "buttonPaint.glyphsOnly", () -> {
+            g2.drawGlyphVector(label.glyphs, 10f, 60f);
+            g2.drawGlyphVector(label.glyphs, 10f, 60f);
+            return target.getRGB(60, 45);
+        });
+        if (stormBytes >= 0 && stormBytes - glyphBytes >= 1) {
+            VirtualNumpad.Log.warn("Hover repaints allocate " + String.format(Locale.ROOT, "%.1f", stormBytes - glyphBytes) +
+                    " bytes per operation beyond Java2D text drawing");
+        }
+        g2.dispose();
+    }
+
+    private static void benchmarkBackgroundPaint(List<String> results) throws Exception {
+        BufferedImage photo = new BufferedImage(3840, 2160, BufferedImage.TYPE_INT_RGB);
+        Graphics2D photoGraphics = photo.createGraphics();
+        photoGraphics.setPaint(new GradientPaint(0, 0, Color.BLUE, 3840, 2160, Color.ORANGE));
+        photoGraphics.fillRect(0, 0, 3840, 2160);
+        photoGraphics.dispose();
+
+        VirtualNumpad.BackgroundImageCache cache = new VirtualNumpad.BackgroundImageCache();
+        cache.set(photo);
+        JPanel panel = new JPanel();
+        panel.setSize(520, 600);
+
+        BufferedImage target = new BufferedImage(520, 600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = target.createGraphics();
+        results.add(measure("backgroundPaint.blit", () -> {
+            g2.drawImage(cache.getScaled(panel), 0, 0, panel.getWidth(), panel.getHeight(), null);
+            return target.getRGB(260, 300);
+        }));
+
+        int[] width = {520};
+        results.add(measure("backgroundPaint.resize", () -> {
+            // Every operation sees a new size and rescales the 4K source
+            width[0] = width[0] == 520 ? 521 : 520;
+            panel.setSize(width[0], 600);
+            g2.drawImage(cache.getScaled(panel), 0, 0, panel.getWidth(), panel.getHeight(), null);
+            return target.getRGB(260, 300);
+        }));
+        g2.dispose();
+    }
+
+    private static void benchmarkKeyResolution(List<String> results) throws Exception {
+        VirtualNumpad.KeyLayout layout = VirtualNumpad.KeyLayout.load(VirtualNumpad.DEFAULT_NUM_LAYOUT, new HashMap<>(), 0, 0);
+        long[] events = new long[1];
+        VirtualNumpad.KeySink stub = new VirtualNumpad.KeySink() {
+            @Override
+            public void keyPress(int keyCode) {
+                events[0] += keyCode;
+            }
+
+            @Override
+            public void keyRelease(int keyCode) {
+                events[0] -= keyCode - 1;
+            }
+
+            @Override
+            public void delay(int millis) {
+            }
+        };
+
+        int[] index = new int[1];
+        results.add(measure("keyResolution.numpad", () -> {
+            VirtualNumpad.KeyBinding binding = layout.bindings[index[0]++ & 15];
+            VirtualNumpad.KeyInjector.play(stub, binding.macro.ops);
+            return events[0];
+        }));
+    }
+
+    private static void benchmarkLanguageParsing(List<String> results) throws Exception {
+        File file = File.createTempFile("virtualnumpad-bench", ".txt");
+        file.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            for (int i = 0; i < 5000; i++) {
+                writer.println("bench.section" + (i % 50) + ".key" + i + " = 虚拟数字键盘 value " + i);
+            }
+        }
+
+        results.add(measure("languageParse.5000lines", () -> VirtualNumpad.parseLanguageFile(file).size()));
+    }
+
+    /**
+     * Index a directory of 40 languages and load the current one, from the
+     * text files and from the precompiled bundle
+     */
+    private static void benchmarkLanguageStartup(List<String> results) throws Exception {
+        File root = Files.createTempDirectory("virtualnumpad-bench").toFile();
+        File languagesDir = new File(root, "languages");
+        File cacheDir = new File(root, "cache");
+        languagesDir.mkdir();
+        for (int i = 0; i < 40; i++) {
+            String langCode = "" + (char) ('a' + i / 26) + (char) ('a' + i % 26) + "-xx";
+            File file = new File(languagesDir, langCode + ".txt");
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+                writer.println("language.name=VirtualNumpad.Language " + i);
+                for (int j = 0; j < 300; j++) {
+                    writer.println("bench.section" + (j % 20) + ".key" + j + " = 虚拟数字键盘 value " + j);
+                }
+            }
+        }
+
+        results.add(measure("languageStartup.text", () -> {
+            VirtualNumpad.LanguageCatalog catalog = new VirtualNumpad.LanguageCatalog(null, Collections.emptyMap());
+            catalog.index(languagesDir, Runnable::run);
+            return catalog.get("ab-xx").size();
+        }));
+
+        // First index writes the bundle, the measured ones map it
+        new VirtualNumpad.LanguageCatalog(cacheDir, Collections.emptyMap()).index(languagesDir, Runnable::run);
+        results.add(measure("languageStartup.bundle", () -> {
+            VirtualNumpad.LanguageCatalog catalog = new VirtualNumpad.LanguageCatalog(cacheDir, Collections.emptyMap());
+            catalog.index(languagesDir, command -> {
+                throw new IllegalStateException("bundle was not reused");
+            });
+            return catalog.get("ab-xx").size();
+        }));
+
+        for (File dir : new File[]{languagesDir, cacheDir}) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+        root.delete();
+    }
+
+    private static void benchmarkTranslationLookup(List<String> results) throws Exception {
+        // Only the UI's own keys, so the benchmark adds nothing to the shared table
+        VirtualNumpad.Language.Builder builder = new VirtualNumpad.Language.Builder();
+        int[] ids = {VirtualNumpad.TranslationKeys.WINDOW_TITLE, VirtualNumpad.TranslationKeys.STATUS_LABEL, VirtualNumpad.TranslationKeys.MODE_LABEL,
+                VirtualNumpad.TranslationKeys.BUTTON_EXIT, VirtualNumpad.TranslationKeys.BUTTON_FROSTED, VirtualNumpad.TranslationKeys.MESSAGE_INPUT,
+                VirtualNumpad.TranslationKeys.MENU_LANGUAGE, VirtualNumpad.TranslationKeys.TRAY_THEME_DARK};
+        for (int id : ids) {
+            String key = VirtualNumpad.TranslationKeys.name(id);
+            builder.put(key, key.toUpperCase());
+        }
+        VirtualNumpad.Language language = builder.build();
+        int missing = VirtualNumpad.TranslationKeys.TRAY_THEME_LIGHT;
+
+        int[] index = new int[1];
+        results.add(measure("translationLookup.hit", () ->
+                VirtualNumpad.translate(language, ids[index[0]++ & 7]).length()));
+        results.add(measure("translationLookup.miss", () ->
+                VirtualNumpad.translate(language, missing).length()));
+    }
+
+    /**
+     * Run an operation for the warmup and measurement iterations, returning one CSV row
+     */
+    private static String measure(String name, Operation operation) throws Exception {
+        int batch = batchSize(operation);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation, batch);
+        }
+
+        double[] scores = new double[MEASUREMENT_ITERATIONS];
+        double sum = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            scores[i] = iteration(operation, batch);
+            sum += scores[i];
+        }
+
+        double mean = sum / scores.length;
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        double error = Math.sqrt(variance / (scores.length - 1));
+
+        return String.format(Locale.ROOT, "%s,avgt,ns/op,%.3f,%.3f,%d", name, mean, error, scores.length);
+    }
+
+    /**
+     * Bytes allocated by the current thread per operation, read from the
+     * ThreadMXBean. Adds one CSV row and returns the mean, or -1 with an
+     * "unsupported" row when the JVM cannot count allocations
+     */
+    private static double measureAllocation(List<String> results, String name, Operation operation) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean) ||
+                !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            results.add(name + ",alloc,B/op,unsupported,,0");
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            allocationIteration(operation, allocations, threadId);
+        }
+
+        double[] scores = new double[MEASUREMENT_ITERATIONS];
+        double sum = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            scores[i] = allocationIteration(operation, allocations, threadId);
+            sum += scores[i];
+        }
+
+        double mean = sum / scores.length;
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        double error = Math.sqrt(variance / (scores.length - 1));
+
+        results.add(String.format(Locale.ROOT, "%s,alloc,B/op,%.3f,%.3f,%d", name, mean, error, scores.length));
+        return mean;
+    }
+
+    private static double allocationIteration(Operation operation, com.sun.management.ThreadMXBean allocations,
+                                              long threadId) throws Exception {
+        long result = 0;
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ALLOCATION_OPERATIONS; i++) {
+            result += operation.run();
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        blackhole += result;
+        return allocated / (double) ALLOCATION_OPERATIONS;
+    }
+
+    /**
+     * Number of operations that take about BATCH_NANOS, so the cost of reading
+     * the clock is spread over the batch instead of added to every operation
+     */
+    private static int batchSize(Operation operation) throws Exception {
+        long result = 0;
+        int batch = 1;
+        while (batch < MAX_BATCH) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                result += operation.run();
+            }
+            if (System.nanoTime() - start >= BATCH_NANOS) {
+                break;
+            }
+            batch *= 2;
+        }
+        blackhole += result;
+        return batch;
+    }
+
+    private static double iteration(Operation operation, int batch) throws Exception {
+        long operations = 0;
+        long result = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < batch; i++) {
+                result += operation.run();
+            }
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        blackhole += result;
+        return elapsed / (double) operations;
+    }
+}
\ No newline at end of file
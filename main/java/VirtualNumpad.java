@@ -1,25 +1,108 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.plaf.basic.BasicButtonUI;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
 import java.util.List;
+import javax.swing.Timer;
 import java.util.prefs.Preferences;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 public class VirtualNumpad extends JFrame {
-    private boolean isAlwaysOnTop = false;
-    private boolean isNumLockMode = true;
+    // State written on the EDT, volatile where the management bean reads it
+    private volatile boolean isAlwaysOnTop = false;
+    private volatile boolean isNumLockMode = true;
     private boolean showNotifications = false;
-    private boolean isDarkMode = false;
+    private volatile boolean isDarkMode = false;
     private boolean isFrostedButtons = false;
     private Set<Integer> pressedKeys = new HashSet<>();
-    private Map<String, String> currentLanguage = new HashMap<>();
-    private Map<String, Map<String, String>> languages = new HashMap<>();
-    private String currentLangCode = "en-us";
-    private String backgroundImagePath = null;
+    private Language currentLanguage = Language.EMPTY;
+    private final LanguageCatalog languages = new LanguageCatalog(languageBundleDirectory(), createDefaultLanguages());
+    private final LanguageWatcher languageWatcher = new LanguageWatcher();
+    private File languagesDirectory;
+    // False when the languages folder could not be created and the current directory is used
+    private volatile boolean hasLanguagesFolder;
+    private ScheduledFuture<?> bundleRebuild;
+    private static final long BUNDLE_SETTLE_MS = 5000;
+    private volatile String currentLangCode = "en-us";
+    private volatile String backgroundImagePath = null;
+    private int macroKeyDelay = 0;
+    private int macroStepDelay = 10;
+    private int repeatDelay = 400;
+    private int repeatRate = 20;
+    private final BackgroundImageCache backgroundCache = new BackgroundImageCache();
+    private final PaintStats paintStats = new PaintStats();
+    private final PadButtonUI padButtonUI = new PadButtonUI(paintStats);
+    private BackgroundImageLoader backgroundLoader;
+    private final KeyInjector keyInjector = new KeyInjector();
+    private final AutoRepeat autoRepeat = new AutoRepeat();
+    private final AtomicLong preferenceFlushes = new AtomicLong();
+    private final PreferenceWriter preferenceWriter = new PreferenceWriter();
+    private final StartupTimer startup = new StartupTimer();
+    private final Toast toast = new Toast();
+    private boolean firstFramePainted = false;
+    private boolean deferredPhasesStarted = false;
+
+    // Launch modes used by packaging/fast-start.sh
+    private static boolean trainingRun = false;
+    private static boolean startupProbe = false;
+    private final AtomicLong languageReloads = new AtomicLong();
+
+    // Shared background scheduler for timed work
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "VirtualNumpad-Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // Configuration
     private Preferences prefs;
@@ -31,6 +114,13 @@ public class VirtualNumpad extends JFrame {
     private static final String PREF_DARK_MODE = "darkMode";
     private static final String PREF_BACKGROUND_IMAGE = "backgroundImage";
     private static final String PREF_FROSTED_BUTTONS = "frostedButtons";
+    private static final String PREF_MACRO_KEY_DELAY = "macroKeyDelay";
+    private static final String PREF_MACRO_STEP_DELAY = "macroStepDelay";
+    private static final String PREF_REPEAT_DELAY = "repeatDelay";
+    private static final String PREF_REPEAT_RATE = "repeatRate";
+    private static final int MAX_REPEAT_RATE = 1000;
+    private static final String PREF_NUM_LAYOUT = "numLayout";
+    private static final String PREF_SHORTCUT_LAYOUT = "shortcutLayout";
 
     // Keyboard shortcuts
     private static final int TOGGLE_TOP_KEY = KeyEvent.VK_T;
@@ -47,53 +137,69 @@ public class VirtualNumpad extends JFrame {
     private SystemTray systemTray;
     private TrayIcon trayIcon;
     private JMenuItem languageMenuItem; // 添加这个成员变量来跟踪语言菜单项
+    private JLabel authorLabel;
+    private JButton[] numpadButtons;
+    private JButton toggleTopBtn;
+    private JButton toggleModeBtn;
+    private JButton toggleThemeBtn;
+
+    // Button fonts, shared by all buttons
+    static final Font NUM_BUTTON_FONT = new Font("SansSerif", Font.BOLD, 16);
+    static final Font SHORTCUT_BUTTON_FONT = new Font("SansSerif", Font.BOLD, 12);
+    private static final Font CONTROL_BUTTON_FONT = new Font("SansSerif", Font.BOLD, 12);
 
     // Font for System Tray (AWT) to fix Chinese display issues
     private Font trayFont;
 
-    // Button configurations
-    private String[][] numKeys = {
-            {"7", "8", "9", "/"},
-            {"4", "5", "6", "*"},
-            {"1", "2", "3", "-"},
-            {"0", ".", "=", "+"}
+    // Button configurations, loaded by name from layouts/<name>.layout
+    static final String DEFAULT_NUM_LAYOUT = "num";
+    private static final String DEFAULT_SHORTCUT_LAYOUT = "shortcut";
+
+    // Built-in copies of the default layouts, used when no layout file can be loaded
+    private static final String[][] NUM_LAYOUT = {
+            {"7=NUMPAD7", "8=NUMPAD8", "9=NUMPAD9", "/=DIVIDE"},
+            {"4=NUMPAD4", "5=NUMPAD5", "6=NUMPAD6", "*=MULTIPLY"},
+            {"1=NUMPAD1", "2=NUMPAD2", "3=NUMPAD3", "-=SUBTRACT"},
+            {"0=NUMPAD0", ".=DECIMAL", "==ENTER", "+=ADD"}
     };
 
-    private String[][] shortcutKeys = {
-            {"COPY", "PASTE", "SAVE", "CUT"},
-            {"UNDO", "REDO", "NEW", "OPEN"},
-            {"FIND", "REPLACE", "PRINT", "HELP"},
+    private static final String[][] SHORTCUT_LAYOUT = {
+            {"COPY=menu C", "PASTE=menu V", "SAVE=menu S", "CUT=menu X"},
+            {"UNDO=menu Z", "REDO=menu Y", "NEW=menu N", "OPEN=menu O"},
+            {"FIND=menu F", "REPLACE=menu H", "PRINT=menu P", "HELP=F1"},
             {"TOGGLE_TOP", "TOGGLE_MODE", "TOGGLE_THEME", "EXIT"}
     };
 
-    public VirtualNumpad() {
-        // Load preferences
-        loadPreferences();
+    private String numLayoutName = DEFAULT_NUM_LAYOUT;
+    private String shortcutLayoutName = DEFAULT_SHORTCUT_LAYOUT;
 
-        // Set UTF-8 encoding for file reading
-        System.setProperty("file.encoding", "UTF-8");
+    private static final String LAYOUTS_DIR = "layouts";
 
-        // Load language files
-        loadLanguages();
+    // Compiled key binding tables
+    private KeyLayout numLayout;
+    private KeyLayout shortcutLayout;
 
-        // Initialize UI
-        initUI();
+    public VirtualNumpad() {
+        // First frame: only what the numpad grid needs
+        startup.phase("Preferences", this::loadPreferences);
+        startup.phase("Layouts", this::compileLayouts);
 
-        // Setup system tray
-        setupSystemTray();
+        // Set UTF-8 encoding for file reading
+        System.setProperty("file.encoding", "UTF-8");
 
-        // Setup keyboard listener
-        setupGlobalKeyListener();
+        // Index language files and load the current language
+        startup.phase("Languages", this::loadLanguages);
 
-        // Update initial status
-        updateStatus();
-        setAlwaysOnTop(isAlwaysOnTop);
+        startup.phase("Window", () -> {
+            initUI();
 
-        // Set window to not steal focus
-        setFocusableWindowState(false);
+            // Update initial status
+            updateStatus();
+            setAlwaysOnTop(isAlwaysOnTop);
 
-        // Set window icon
-        setWindowIcon();
+            // Set window to not steal focus
+            setFocusableWindowState(false);
+        });
 
         // Window listener to save preferences on close
         addWindowListener(new WindowAdapter() {
@@ -113,7 +219,103 @@ public class VirtualNumpad extends JFrame {
         });
 
         setLocationRelativeTo(null);
-        setVisible(true);
+        startup.phase("Show", () -> setVisible(true));
+
+        // The remaining phases start after the first paint, this covers a window that never paints
+        Timer fallback = new Timer(1000, e -> startDeferredPhases());
+        fallback.setRepeats(false);
+        fallback.start();
+    }
+
+    /**
+     * Resident memory of this process from /proc, -1 where that is not available
+     */
+    private static long residentSetKilobytes() {
+        File status = new File("/proc/self/status");
+        if (!status.isFile()) {
+            return -1;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(status))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.error("Error reading resident memory: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Set up everything the first frame does not need. Each phase is its own
+     * event, so clicks are handled in between
+     */
+    private void startDeferredPhases() {
+        if (deferredPhasesStarted) {
+            return;
+        }
+        deferredPhasesStarted = true;
+
+        SwingUtilities.invokeLater(() -> startup.phase("Menus", this::initMenus));
+        SwingUtilities.invokeLater(() -> startup.phase("System tray", this::setupSystemTray));
+        SwingUtilities.invokeLater(() -> startup.phase("Key listener", this::setupGlobalKeyListener));
+        SwingUtilities.invokeLater(() -> startup.phase("Window icon", this::setWindowIcon));
+        SwingUtilities.invokeLater(() -> startup.phase("Background image", this::loadBackgroundImage));
+
+        // These do not touch Swing
+        scheduler.execute(() -> startup.phase("Management bean", this::registerManagementBean));
+        scheduler.execute(() -> startup.phase("Language watcher", () -> {
+            // Watching the current directory would react to every file saved next to the app
+            if (hasLanguagesFolder) {
+                languageWatcher.start(languagesDirectory);
+            }
+        }));
+
+        if (trainingRun) {
+            SwingUtilities.invokeLater(() -> startup.phase("Training", this::runTraining));
+        }
+    }
+
+    /**
+     * Exercise the UI once so a class data sharing archive recorded at exit
+     * covers what a real session loads. Nothing is saved and no keys are sent
+     */
+    private void runTraining() {
+        for (int i = 0; i < 2; i++) {
+            isNumLockMode = !isNumLockMode;
+            updateNumpadButtons();
+            updateStatus();
+            mainPanel.paintImmediately(mainPanel.getBounds());
+
+            isDarkMode = !isDarkMode;
+            applyTheme();
+            mainPanel.paintImmediately(mainPanel.getBounds());
+        }
+
+        Language original = currentLanguage;
+        for (String langCode : languages.codes()) {
+            Language language = languages.get(langCode);
+            if (language != null) {
+                currentLanguage = language;
+                updateUIForNewLanguage();
+                mainPanel.paintImmediately(mainPanel.getBounds());
+            }
+        }
+        currentLanguage = original;
+        updateUIForNewLanguage();
+
+        // Dialog and chooser classes are otherwise loaded on first use
+        JDialog dialog = new JOptionPane(getTranslation(TranslationKeys.ABOUT_TITLE), JOptionPane.INFORMATION_MESSAGE)
+                .createDialog(this, getTranslation(TranslationKeys.MENU_ABOUT));
+        dialog.setModal(false);
+        dialog.setVisible(true);
+        dialog.dispose();
+        new JFileChooser();
+
+        System.out.print(startup.report());
+        SwingUtilities.invokeLater(() -> System.exit(0));
     }
 
     /**
@@ -128,29 +330,113 @@ public class VirtualNumpad extends JFrame {
         isDarkMode = prefs.getBoolean(PREF_DARK_MODE, false);
         backgroundImagePath = prefs.get(PREF_BACKGROUND_IMAGE, null);
         isFrostedButtons = prefs.getBoolean(PREF_FROSTED_BUTTONS, false);
+        macroKeyDelay = Math.max(0, prefs.getInt(PREF_MACRO_KEY_DELAY, 0));
+        macroStepDelay = Math.max(0, prefs.getInt(PREF_MACRO_STEP_DELAY, 10));
+        repeatDelay = Math.max(0, prefs.getInt(PREF_REPEAT_DELAY, 400));
+        // Repeats per second, 0 turns auto-repeat off
+        repeatRate = Math.min(MAX_REPEAT_RATE, Math.max(0, prefs.getInt(PREF_REPEAT_RATE, 20)));
+        numLayoutName = prefs.get(PREF_NUM_LAYOUT, DEFAULT_NUM_LAYOUT);
+        shortcutLayoutName = prefs.get(PREF_SHORTCUT_LAYOUT, DEFAULT_SHORTCUT_LAYOUT);
+
+        // Nothing needs writing until a value differs from what was loaded
+        preferenceWriter.loaded(preferenceSnapshot());
+
+        // Pending changes are written when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(preferenceWriter::flush, "VirtualNumpad-PreferenceFlush"));
     }
 
     /**
-     * Save user preferences
+     * Save user preferences. The write happens on the scheduler once changes stop arriving
      */
     private void savePreferences() {
-        prefs.put(PREF_LANGUAGE, currentLangCode);
-        prefs.putBoolean(PREF_ALWAYS_ON_TOP, isAlwaysOnTop);
-        prefs.putBoolean(PREF_NUM_LOCK_MODE, isNumLockMode);
-        prefs.putBoolean(PREF_SHOW_NOTIFICATIONS, showNotifications);
-        prefs.putBoolean(PREF_DARK_MODE, isDarkMode);
-        prefs.putBoolean(PREF_FROSTED_BUTTONS, isFrostedButtons);
+        preferenceWriter.schedule(preferenceSnapshot());
+    }
+
+    /**
+     * Current preference values as strings, a missing key means the preference is removed
+     */
+    private Map<String, String> preferenceSnapshot() {
+        Map<String, String> snapshot = new HashMap<>();
+        snapshot.put(PREF_LANGUAGE, currentLangCode);
+        snapshot.put(PREF_ALWAYS_ON_TOP, String.valueOf(isAlwaysOnTop));
+        snapshot.put(PREF_NUM_LOCK_MODE, String.valueOf(isNumLockMode));
+        snapshot.put(PREF_SHOW_NOTIFICATIONS, String.valueOf(showNotifications));
+        snapshot.put(PREF_DARK_MODE, String.valueOf(isDarkMode));
+        snapshot.put(PREF_FROSTED_BUTTONS, String.valueOf(isFrostedButtons));
+        snapshot.put(PREF_MACRO_KEY_DELAY, String.valueOf(macroKeyDelay));
+        snapshot.put(PREF_MACRO_STEP_DELAY, String.valueOf(macroStepDelay));
+        snapshot.put(PREF_REPEAT_DELAY, String.valueOf(repeatDelay));
+        snapshot.put(PREF_REPEAT_RATE, String.valueOf(repeatRate));
+        snapshot.put(PREF_NUM_LAYOUT, numLayoutName);
+        snapshot.put(PREF_SHORTCUT_LAYOUT, shortcutLayoutName);
         if (backgroundImagePath != null) {
-            prefs.put(PREF_BACKGROUND_IMAGE, backgroundImagePath);
-        } else {
-            prefs.remove(PREF_BACKGROUND_IMAGE);
+            snapshot.put(PREF_BACKGROUND_IMAGE, backgroundImagePath);
         }
+        return snapshot;
+    }
 
-        try {
-            prefs.flush();
-        } catch (Exception e) {
-            System.err.println("Error saving preferences: " + e.getMessage());
+    /**
+     * Compile the button layouts into key binding tables
+     */
+    private void compileLayouts() {
+        Map<String, Runnable> commands = new HashMap<>();
+        commands.put("TOGGLE_TOP", this::toggleAlwaysOnTop);
+        commands.put("TOGGLE_MODE", this::toggleNumLockMode);
+        commands.put("TOGGLE_THEME", this::toggleTheme);
+        commands.put("EXIT", this::confirmExit);
+
+        numLayout = loadLayout(numLayoutName, DEFAULT_NUM_LAYOUT, commands,
+                NUM_LAYOUT, false, true);
+        shortcutLayout = loadLayout(shortcutLayoutName, DEFAULT_SHORTCUT_LAYOUT, commands,
+                SHORTCUT_LAYOUT, true, false);
+    }
+
+    /**
+     * Load a layout by name, falling back to the default layout file and
+     * then to the built-in copy when a file is missing or invalid
+     */
+    private KeyLayout loadLayout(String name, String defaultName, Map<String, Runnable> commands,
+                                 String[][] builtIn, boolean translateLabels, boolean repeatable) {
+        String[] candidates = name.equals(defaultName) ? new String[]{name} : new String[]{name, defaultName};
+        for (String candidate : candidates) {
+            try {
+                return KeyLayout.load(candidate, commands, macroKeyDelay, macroStepDelay);
+            } catch (IOException | IllegalArgumentException e) {
+                Log.warn("Layout " + candidate + " not loaded: " + e.getMessage());
+            }
+        }
+        Log.warn("Using the built-in " + defaultName + " layout");
+        return KeyLayout.compile(builtIn, translateLabels, repeatable, commands, macroKeyDelay, macroStepDelay);
+    }
+
+    /**
+     * Location of layouts/<name>.layout, next to the application or else packaged on the classpath
+     */
+    private static URL layoutResource(String name) {
+        File layoutFile = new File(LAYOUTS_DIR, name + KeyLayout.FILE_SUFFIX);
+        if (layoutFile.isFile()) {
+            try {
+                return layoutFile.toURI().toURL();
+            } catch (MalformedURLException e) {
+                Log.error("Error locating " + layoutFile + ": " + e.getMessage());
+            }
+        }
+        return VirtualNumpad.class.getResource("/" + LAYOUTS_DIR + "/" + name + KeyLayout.FILE_SUFFIX);
+    }
+
+    /**
+     * Location of icon.ico, next to the application or else packaged on the classpath
+     */
+    private static URL iconResource() {
+        File iconFile = new File("icon.ico");
+        if (iconFile.exists()) {
+            try {
+                return iconFile.toURI().toURL();
+            } catch (MalformedURLException e) {
+                Log.error("Error locating icon.ico: " + e.getMessage());
+            }
         }
+        return VirtualNumpad.class.getResource("/icon.ico");
     }
 
     /**
@@ -159,19 +445,19 @@ public class VirtualNumpad extends JFrame {
     private void setWindowIcon() {
         try {
             // Try to load icon from file in the same directory
-            File iconFile = new File("icon.ico");
-            if (iconFile.exists()) {
-                Image image = new ImageIcon("icon.ico").getImage();
+            URL iconUrl = iconResource();
+            if (iconUrl != null) {
+                Image image = new ImageIcon(iconUrl).getImage();
                 setIconImage(image);
-                System.out.println("Window icon loaded from icon.ico");
+                Log.info("Window icon loaded from " + iconUrl);
             } else {
                 // Create default icon
                 Image icon = createDefaultIcon();
                 setIconImage(icon);
-                System.out.println("Using default window icon (icon.ico not found)");
+                Log.info("Using default window icon (icon.ico not found)");
             }
         } catch (Exception e) {
-            System.err.println("Error loading window icon: " + e.getMessage());
+            Log.error("Error loading window icon: " + e.getMessage());
         }
     }
 
@@ -201,9 +487,12 @@ public class VirtualNumpad extends JFrame {
     }
 
     /**
-     * Load all language files with UTF-8 encoding
+     * Index the language files and load the current language. Other languages
+     * are parsed when first selected
      */
     private void loadLanguages() {
+        languageReloads.incrementAndGet();
+
         // Clear existing languages
         languages.clear();
 
@@ -213,113 +502,161 @@ public class VirtualNumpad extends JFrame {
         // Create languages folder if it doesn't exist
         if (!languagesDir.exists()) {
             if (languagesDir.mkdir()) {
-                System.out.println("Created languages folder");
+                Log.info("Created languages folder");
             }
         }
 
         if (languagesDir.exists() && languagesDir.isDirectory()) {
-            loadLanguageFilesFromDirectory(languagesDir);
-            System.out.println("Loading languages from languages folder");
+            languagesDirectory = languagesDir;
+            hasLanguagesFolder = true;
+            Log.info("Indexing languages from languages folder");
         } else {
             // Try to load from current directory as fallback
-            System.out.println("Languages folder not found, trying current directory");
-            loadLanguageFilesFromDirectory(new File("."));
+            Log.info("Languages folder not found, trying current directory");
+            languagesDirectory = new File(".");
+            hasLanguagesFolder = false;
         }
+        languages.index(languagesDirectory, scheduler);
 
-        // Create default languages if no files were found
+        // Then the language files packaged with the application
         if (languages.isEmpty()) {
-            createDefaultLanguages();
-            System.out.println("Created default languages");
+            languages.indexResources();
         }
 
-        // Set current language
-        if (languages.containsKey(currentLangCode)) {
-            currentLanguage = languages.get(currentLangCode);
-        } else if (!languages.isEmpty()) {
-            // If saved language not found, use the first available language
-            currentLangCode = languages.keySet().iterator().next();
-            currentLanguage = languages.get(currentLangCode);
-            System.out.println("Saved language not found, using: " + currentLangCode);
+        // Offer the built-in languages if no files were found
+        if (languages.isEmpty()) {
+            languages.useDefaults();
+            Log.info("Using built-in languages");
         }
 
-        System.out.println("Current language: " + currentLangCode);
-        System.out.println("Available languages: " + languages.keySet());
+        selectCurrentLanguage();
+
+        Log.info("Current language: " + currentLangCode);
+        Log.info("Available languages: " + languages.codes());
     }
 
     /**
-     * Load language files from a specific directory
+     * Point currentLanguage at the saved language, or the first one that loads
      */
-    private void loadLanguageFilesFromDirectory(File dir) {
-        try {
-            File[] files = dir.listFiles((d, name) -> {
-                // Accept any .txt file as language file
-                return name.toLowerCase().endsWith(".txt");
-            });
+    private void selectCurrentLanguage() {
+        Language language = languages.get(currentLangCode);
+        if (language == null) {
+            // If saved language not found, use the first available language
+            for (String langCode : languages.codes()) {
+                language = languages.get(langCode);
+                if (language != null) {
+                    Log.info("Saved language not found, using: " + langCode);
+                    currentLangCode = langCode;
+                    break;
+                }
+            }
+        }
+        if (language != null) {
+            currentLanguage = language;
+        }
+    }
 
-            if (files != null) {
-                System.out.println("Found " + files.length + " potential language files");
+    /**
+     * Apply a batch of changed language files from the watcher, relabelling the UI once
+     */
+    private void applyLanguageChanges(Map<String, ParsedLanguage> changes) {
+        for (Map.Entry<String, ParsedLanguage> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                languages.update(change.getKey(), change.getValue());
+            } else {
+                languages.remove(change.getKey());
+            }
+        }
+        scheduleBundleRebuild();
 
-                for (File file : files) {
-                    String fileName = file.getName();
-                    String langCode = fileName.substring(0, fileName.lastIndexOf('.'));
+        selectCurrentLanguage();
+        updateLanguageComboBox();
+        updateUIForNewLanguage();
+        Log.info("Reloaded languages: " + changes.keySet());
+    }
 
-                    // Validate language code format (xx-xx or xx_xx)
-                    if (langCode.matches("^[a-z]{2}[_-][a-z]{2}$")) {
-                        loadLanguageFile(langCode, file);
-                    } else {
-                        System.out.println("Skipping file with invalid name format: " + fileName);
-                    }
-                }
-            } else {
-                System.out.println("No files found in directory: " + dir.getAbsolutePath());
+    /**
+     * Rewrite the language bundle once edits have settled. The bundle only
+     * speeds up the next start, and a stale one is detected and ignored
+     */
+    private void scheduleBundleRebuild() {
+        if (bundleRebuild != null) {
+            bundleRebuild.cancel(false);
+        }
+        File dir = languagesDirectory;
+        bundleRebuild = scheduler.schedule(() -> languages.rebuildBundle(dir, Runnable::run),
+                BUNDLE_SETTLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Directory for the precompiled language bundle, null when disabled with
+     * -Dvirtualnumpad.languageBundle=false
+     */
+    private static File languageBundleDirectory() {
+        if ("false".equals(System.getProperty("virtualnumpad.languageBundle"))) {
+            return null;
+        }
+        return cacheDirectory();
+    }
+
+    /**
+     * Per-user cache directory, following the platform convention
+     */
+    private static File cacheDirectory() {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        String home = System.getProperty("user.home");
+        String base;
+        if (os.contains("win")) {
+            base = System.getenv("LOCALAPPDATA");
+        } else if (os.contains("mac")) {
+            base = home + "/Library/Caches";
+        } else {
+            base = System.getenv("XDG_CACHE_HOME");
+            if (base == null || base.isEmpty()) {
+                base = home + "/.cache";
             }
-        } catch (Exception e) {
-            System.err.println("Error loading language files from directory: " + dir.getAbsolutePath());
-            e.printStackTrace();
         }
+        if (base == null || base.isEmpty()) {
+            base = home;
+        }
+        return new File(base, "VirtualNumpad");
+    }
+
+    /**
+     * Parse "key=value" lines of a language file
+     */
+    static Language parseLanguageFile(File file) throws IOException {
+        return parseLanguage(new FileInputStream(file));
     }
 
     /**
-     * Load a specific language file with UTF-8 encoding
+     * Parse "key=value" lines from a stream, which is closed afterwards
      */
-    private void loadLanguageFile(String langCode, File file) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
-            Map<String, String> langMap = new HashMap<>();
+    private static Language parseLanguage(InputStream input) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"))) {
+            Language.Builder language = new Language.Builder();
             String line;
-            int lineCount = 0;
 
             while ((line = reader.readLine()) != null) {
-                lineCount++;
                 line = line.trim();
                 if (!line.isEmpty() && line.contains("=")) {
                     String[] parts = line.split("=", 2);
                     if (parts.length == 2) {
-                        langMap.put(parts[0].trim(), parts[1].trim());
+                        language.put(parts[0].trim(), parts[1].trim());
                     }
                 }
             }
-
-            if (!langMap.isEmpty()) {
-                languages.put(langCode, langMap);
-                System.out.println("Successfully loaded language: " + langCode +
-                        " from " + file.getName() +
-                        " (" + langMap.size() + " translations)");
-            } else {
-                System.out.println("Warning: Language file " + file.getName() + " is empty or invalid");
-            }
-
-        } catch (IOException e) {
-            System.err.println("Error loading language file: " + file.getName());
-            e.printStackTrace();
+            return language.build();
         }
     }
 
     /**
-     * Create default language translations
+     * Create the built-in translations, the last step of every fallback chain
      */
-    private void createDefaultLanguages() {
+    private static Map<String, Language> createDefaultLanguages() {
         // English translations
         Map<String, String> enMap = new HashMap<>();
+        enMap.put("language.name", "English");
         enMap.put("window.title", "Virtual Numpad");
         enMap.put("status.label", "Status");
         enMap.put("mode.label", "Mode");
@@ -392,6 +729,7 @@ public class VirtualNumpad extends JFrame {
 
         // Chinese translations
         Map<String, String> zhMap = new HashMap<>();
+        zhMap.put("language.name", "简体中文");
         zhMap.put("window.title", "虚拟数字键盘");
         zhMap.put("status.label", "状态");
         zhMap.put("mode.label", "模式");
@@ -462,46 +800,40 @@ public class VirtualNumpad extends JFrame {
         zhMap.put("tray.background", "设置背景");
         zhMap.put("tray.exit", "退出");
 
-        languages.put("en-us", enMap);
-        languages.put("zh-cn", zhMap);
-        currentLanguage = enMap;
+        Map<String, Language> defaults = new LinkedHashMap<>();
+        defaults.put("en-us", Language.of(enMap));
+        defaults.put("zh-cn", Language.of(zhMap));
+        return defaults;
+    }
+
+    /**
+     * Get translation for a key id from TranslationKeys
+     */
+    private String getTranslation(int keyId) {
+        return translate(currentLanguage, keyId);
     }
 
     /**
-     * Get translation for a key
+     * Look up a key id in a language, the key name itself is the fallback
      */
-    private String getTranslation(String key) {
-        return currentLanguage.getOrDefault(key, key);
+    static String translate(Language language, int keyId) {
+        String value = language.get(keyId);
+        return value != null ? value : TranslationKeys.name(keyId);
     }
 
     /**
      * Get display name for a language code
      */
     private String getLanguageDisplayName(String langCode) {
-        String displayName = langCode;
-
-        // Check if we have a translation for this language
-        String translationKey = "language." + langCode.toLowerCase().replace("-", "_").replace("_", ".");
-        if (currentLanguage.containsKey(translationKey)) {
-            displayName = currentLanguage.get(translationKey);
-        } else {
-            // Try to get from the language's own map
-            if (languages.containsKey(langCode)) {
-                Map<String, String> langMap = languages.get(langCode);
-                if (langMap.containsKey(translationKey)) {
-                    displayName = langMap.get(translationKey);
-                }
-            }
-        }
-
-        return displayName;
+        // Name from the language's own header, or the code itself
+        return languages.displayName(langCode);
     }
 
     /**
      * Initialize the user interface
      */
     private void initUI() {
-        setTitle(getTranslation("window.title"));
+        setTitle(getTranslation(TranslationKeys.WINDOW_TITLE));
         setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE); // Hide window instead of closing
         setSize(520, 600);
 
@@ -509,17 +841,24 @@ public class VirtualNumpad extends JFrame {
         mainPanel = new JPanel(new BorderLayout()) {
             @Override
             protected void paintComponent(Graphics g) {
+                long start = paintStats.start();
                 super.paintComponent(g);
-                if (backgroundImagePath != null) {
-                    try {
-                        File imgFile = new File(backgroundImagePath);
-                        if (imgFile.exists()) {
-                            Image img = ImageIO.read(imgFile);
-                            g.drawImage(img, 0, 0, getWidth(), getHeight(), this);
-                        }
-                    } catch (IOException e) {
-                        System.err.println("Error drawing background image: " + e.getMessage());
+                // Only blit here - decoding and scaling happen in the cache
+                Image img = backgroundCache.getScaled(this);
+                if (img != null) {
+                    g.drawImage(img, 0, 0, getWidth(), getHeight(), this);
+                }
+                paintStats.end(PaintStats.MAIN_PANEL, start);
+
+                if (!firstFramePainted) {
+                    firstFramePainted = true;
+                    startup.mark("First frame");
+                    if (startupProbe) {
+                        System.out.println("first-frame-ms=" + ManagementFactory.getRuntimeMXBean().getUptime());
+                        System.out.println("rss-kb=" + residentSetKilobytes());
+                        System.exit(0);
                     }
+                    SwingUtilities.invokeLater(VirtualNumpad.this::startDeferredPhases);
                 }
             }
         };
@@ -527,14 +866,83 @@ public class VirtualNumpad extends JFrame {
         setContentPane(mainPanel);
         mainPanel.setFocusable(false);
 
+        // Reserve the menu bar's height in the first frame so the pad does not move when initMenus fills it
+        JMenuBar menuBar = new JMenuBar();
+        JMenu probe = new JMenu(getTranslation(TranslationKeys.MENU_LANGUAGE));
+        menuBar.add(probe);
+        menuBar.setPreferredSize(new Dimension(0, menuBar.getPreferredSize().height));
+        menuBar.remove(probe);
+        setJMenuBar(menuBar);
+
         // Make window non-focusable to prevent stealing focus
         setFocusable(false);
 
-        // Create menu bar
-        JMenuBar menuBar = new JMenuBar();
+        JPanel topPanel = new JPanel(new GridLayout(3, 1));
+        topPanel.setFocusable(false);
+        topPanel.setOpaque(false);
+        topPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        statusLabel = new JLabel("", SwingConstants.CENTER);
+        statusLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
+        statusLabel.setFocusable(false);
+
+        modeLabel = new JLabel("", SwingConstants.CENTER);
+        modeLabel.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        modeLabel.setFocusable(false);
+
+        // Author label
+        authorLabel = new JLabel(getTranslation(TranslationKeys.AUTHOR_INFO), SwingConstants.CENTER);
+        authorLabel.setFont(new Font("SansSerif", Font.ITALIC, 11));
+        authorLabel.setFocusable(false);
+
+        topPanel.add(statusLabel);
+        topPanel.add(modeLabel);
+        topPanel.add(authorLabel);
+
+        // Numpad panel
+        numpadPanel = new JPanel(new GridLayout(4, 4, 10, 10));
+        numpadPanel.setFocusable(false);
+        numpadPanel.setOpaque(false);
+        numpadPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
+        updateNumpadButtons();
+
+        // Control panel
+        JPanel controlPanel = new JPanel(new FlowLayout());
+        controlPanel.setFocusable(false);
+        controlPanel.setOpaque(false);
+        controlPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        toggleTopBtn = createRoundedButton(getTranslation(TranslationKeys.BUTTON_TOGGLE_TOP));
+        toggleTopBtn.addActionListener(e -> toggleAlwaysOnTop());
+
+        toggleModeBtn = createRoundedButton(getTranslation(TranslationKeys.BUTTON_TOGGLE_MODE));
+        toggleModeBtn.addActionListener(e -> toggleNumLockMode());
+
+        toggleThemeBtn = createRoundedButton(getTranslation(TranslationKeys.BUTTON_TOGGLE_THEME));
+        toggleThemeBtn.addActionListener(e -> toggleTheme());
+
+        controlPanel.add(toggleTopBtn);
+        controlPanel.add(toggleModeBtn);
+        controlPanel.add(toggleThemeBtn);
+
+        // Add components to main window
+        mainPanel.add(topPanel, BorderLayout.NORTH);
+        mainPanel.add(numpadPanel, BorderLayout.CENTER);
+        mainPanel.add(controlPanel, BorderLayout.SOUTH);
+
+        // Apply theme
+        applyTheme();
+    }
+
+    /**
+     * Build the menu bar and the language combo box, after the first frame
+     */
+    private void initMenus() {
+        // Fill the placeholder from initUI, which already has the final height
+        JMenuBar menuBar = getJMenuBar();
 
         // Language menu
-        JMenu languageMenu = new JMenu(getTranslation("menu.language"));
+        JMenu languageMenu = new JMenu(getTranslation(TranslationKeys.MENU_LANGUAGE));
         languageMenu.setFocusable(false);
 
         // Create language combo box
@@ -548,25 +956,20 @@ public class VirtualNumpad extends JFrame {
         JMenuItem refreshLanguagesItem = new JMenuItem("Refresh Languages");
         refreshLanguagesItem.setFocusable(false);
         refreshLanguagesItem.addActionListener(e -> {
-            // Reload languages and update combo box
-            loadLanguages();
-            updateLanguageComboBox();
+            reloadLanguages();
 
             if (showNotifications) {
-                JOptionPane.showMessageDialog(this,
-                        "Language list refreshed. Found " + languages.size() + " languages.",
-                        "Language Refresh",
-                        JOptionPane.INFORMATION_MESSAGE);
+                toast.show("Language list refreshed. Found " + languages.size() + " languages.");
             }
         });
 
         // 使用成员变量而不是局部变量
-        languageMenuItem = new JMenuItem(getTranslation("menu.language"));
+        languageMenuItem = new JMenuItem(getTranslation(TranslationKeys.MENU_LANGUAGE));
         languageMenuItem.setFocusable(false);
         languageMenuItem.addActionListener(e -> {
             JOptionPane.showMessageDialog(this,
                     languageComboBox,
-                    getTranslation("menu.language"),
+                    getTranslation(TranslationKeys.MENU_LANGUAGE),
                     JOptionPane.PLAIN_MESSAGE);
         });
 
@@ -575,43 +978,40 @@ public class VirtualNumpad extends JFrame {
         languageMenu.add(refreshLanguagesItem);
 
         // Skins menu (combines theme, background, and frosted effect)
-        JMenu skinsMenu = new JMenu(getTranslation("menu.skins"));
+        JMenu skinsMenu = new JMenu(getTranslation(TranslationKeys.MENU_SKINS));
         skinsMenu.setFocusable(false);
 
         // Theme items
-        JMenuItem lightThemeItem = new JMenuItem(getTranslation("tray.theme.light"));
+        JMenuItem lightThemeItem = new JMenuItem(getTranslation(TranslationKeys.TRAY_THEME_LIGHT));
         lightThemeItem.setFocusable(false);
         lightThemeItem.addActionListener(e -> setLightMode());
 
-        JMenuItem darkThemeItem = new JMenuItem(getTranslation("tray.theme.dark"));
+        JMenuItem darkThemeItem = new JMenuItem(getTranslation(TranslationKeys.TRAY_THEME_DARK));
         darkThemeItem.setFocusable(false);
         darkThemeItem.addActionListener(e -> setDarkMode());
 
         // Background items
-        JMenuItem setBackgroundItem = new JMenuItem(getTranslation("button.background"));
+        JMenuItem setBackgroundItem = new JMenuItem(getTranslation(TranslationKeys.BUTTON_BACKGROUND));
         setBackgroundItem.setFocusable(false);
         setBackgroundItem.addActionListener(e -> setBackgroundImage());
 
-        JMenuItem clearBackgroundItem = new JMenuItem(getTranslation("button.clear.background"));
+        JMenuItem clearBackgroundItem = new JMenuItem(getTranslation(TranslationKeys.BUTTON_CLEAR_BACKGROUND));
         clearBackgroundItem.setFocusable(false);
         clearBackgroundItem.addActionListener(e -> clearBackgroundImage());
 
         // Frosted buttons item
-        JCheckBoxMenuItem frostedItem = new JCheckBoxMenuItem(getTranslation("button.frosted"), isFrostedButtons);
+        JCheckBoxMenuItem frostedItem = new JCheckBoxMenuItem(getTranslation(TranslationKeys.BUTTON_FROSTED), isFrostedButtons);
         frostedItem.setFocusable(false);
         frostedItem.addActionListener(e -> {
             isFrostedButtons = frostedItem.isSelected();
             savePreferences();
-            updateNumpadButtons();
+            updateButtonStyle();
+            mainPanel.repaint();
 
             if (showNotifications) {
-                String message = isFrostedButtons ?
-                        getTranslation("message.frosted.on") :
-                        getTranslation("message.frosted.off");
-                JOptionPane.showMessageDialog(this,
-                        message,
-                        getTranslation("menu.skins"),
-                        JOptionPane.INFORMATION_MESSAGE);
+                toast.show(isFrostedButtons ?
+                        getTranslation(TranslationKeys.MESSAGE_FROSTED_ON) :
+                        getTranslation(TranslationKeys.MESSAGE_FROSTED_OFF));
             }
         });
 
@@ -625,9 +1025,9 @@ public class VirtualNumpad extends JFrame {
         skinsMenu.add(frostedItem);
 
         // Notifications menu
-        JMenu notificationsMenu = new JMenu(getTranslation("menu.notifications"));
+        JMenu notificationsMenu = new JMenu(getTranslation(TranslationKeys.MENU_NOTIFICATIONS));
         notificationsMenu.setFocusable(false);
-        JCheckBoxMenuItem notificationsItem = new JCheckBoxMenuItem(getTranslation("menu.notifications.on"), showNotifications);
+        JCheckBoxMenuItem notificationsItem = new JCheckBoxMenuItem(getTranslation(TranslationKeys.MENU_NOTIFICATIONS_ON), showNotifications);
         notificationsItem.setFocusable(false);
         notificationsItem.addActionListener(e -> {
             showNotifications = notificationsItem.isSelected();
@@ -636,87 +1036,43 @@ public class VirtualNumpad extends JFrame {
         notificationsMenu.add(notificationsItem);
 
         // About menu
-        JMenu aboutMenu = new JMenu(getTranslation("menu.about"));
+        JMenu aboutMenu = new JMenu(getTranslation(TranslationKeys.MENU_ABOUT));
         aboutMenu.setFocusable(false);
-        JMenuItem aboutItem = new JMenuItem(getTranslation("menu.about"));
+        JMenuItem aboutItem = new JMenuItem(getTranslation(TranslationKeys.MENU_ABOUT));
         aboutItem.setFocusable(false);
         aboutItem.addActionListener(e -> showAboutDialog());
         aboutMenu.add(aboutItem);
+        aboutMenu.addSeparator();
+        aboutMenu.add(createDiagnosticsMenu());
 
         menuBar.add(languageMenu);
         menuBar.add(skinsMenu);
         menuBar.add(notificationsMenu);
         menuBar.add(aboutMenu);
-        setJMenuBar(menuBar);
-
-        // Status panel
-        JPanel topPanel = new JPanel(new GridLayout(3, 1));
-        topPanel.setFocusable(false);
-        topPanel.setOpaque(false);
-        topPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
-
-        statusLabel = new JLabel("", SwingConstants.CENTER);
-        statusLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-        statusLabel.setFocusable(false);
-
-        modeLabel = new JLabel("", SwingConstants.CENTER);
-        modeLabel.setFont(new Font("SansSerif", Font.PLAIN, 12));
-        modeLabel.setFocusable(false);
-
-        // Author label
-        JLabel authorLabel = new JLabel(getTranslation("author.info"), SwingConstants.CENTER);
-        authorLabel.setFont(new Font("SansSerif", Font.ITALIC, 11));
-        authorLabel.setFocusable(false);
-
-        topPanel.add(statusLabel);
-        topPanel.add(modeLabel);
-        topPanel.add(authorLabel);
-
-        // Numpad panel
-        numpadPanel = new JPanel(new GridLayout(4, 4, 10, 10));
-        numpadPanel.setFocusable(false);
-        numpadPanel.setOpaque(false);
-        numpadPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
-        updateNumpadButtons();
-
-        // Control panel
-        JPanel controlPanel = new JPanel(new FlowLayout());
-        controlPanel.setFocusable(false);
-        controlPanel.setOpaque(false);
-        controlPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
-
-        JButton toggleTopBtn = createRoundedButton(getTranslation("button.toggle.top"));
-        toggleTopBtn.addActionListener(e -> toggleAlwaysOnTop());
-
-        JButton toggleModeBtn = createRoundedButton(getTranslation("button.toggle.mode"));
-        toggleModeBtn.addActionListener(e -> toggleNumLockMode());
-
-        JButton toggleThemeBtn = createRoundedButton(getTranslation("button.toggle.theme"));
-        toggleThemeBtn.addActionListener(e -> toggleTheme());
-
-        controlPanel.add(toggleTopBtn);
-        controlPanel.add(toggleModeBtn);
-        controlPanel.add(toggleThemeBtn);
-
-        // Add components to main window
-        mainPanel.add(topPanel, BorderLayout.NORTH);
-        mainPanel.add(numpadPanel, BorderLayout.CENTER);
-        mainPanel.add(controlPanel, BorderLayout.SOUTH);
-
-        // Apply theme
-        applyTheme();
+        menuBar.setPreferredSize(null);
+        menuBar.revalidate();
+        menuBar.repaint();
     }
 
     /**
      * Update language combo box with available languages
      */
     private void updateLanguageComboBox() {
-        // Clear existing items
-        languageComboBox.removeAllItems();
+        // Built with the menus after the first frame
+        if (languageComboBox == null) {
+            return;
+        }
 
-        // Get sorted list of language codes
-        List<String> langCodes = new ArrayList<>(languages.keySet());
-        Collections.sort(langCodes);
+        // Detach the listener first so refilling does not switch languages
+        for (ActionListener al : languageComboBox.getActionListeners()) {
+            languageComboBox.removeActionListener(al);
+        }
+
+        // Clear existing items
+        languageComboBox.removeAllItems();
+
+        // Get sorted list of language codes
+        List<String> langCodes = languages.codes();
 
         // Add each language to the combo box
         for (String code : langCodes) {
@@ -730,11 +1086,6 @@ public class VirtualNumpad extends JFrame {
             languageComboBox.setSelectedIndex(currentIndex);
         }
 
-        // 安全地移除现有的 action listeners
-        for (ActionListener al : languageComboBox.getActionListeners()) {
-            languageComboBox.removeActionListener(al);
-        }
-
         // Update action listener
         languageComboBox.addActionListener(e -> {
             int selectedIndex = languageComboBox.getSelectedIndex();
@@ -744,56 +1095,19 @@ public class VirtualNumpad extends JFrame {
             }
         });
 
-        System.out.println("Language combo box updated with " + langCodes.size() + " languages");
+        if (Log.isDebugEnabled()) {
+            Log.debug("Language combo box updated with " + langCodes.size() + " languages");
+        }
     }
 
     /**
      * Create a rounded button
      */
     private JButton createRoundedButton(String text) {
-        JButton button = new JButton(text) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                // Paint background with rounded corners
-                if (getModel().isArmed()) {
-                    g2.setColor(isDarkMode ? new Color(100, 100, 100, 200) : new Color(200, 200, 200, 200));
-                } else if (getModel().isRollover()) {
-                    g2.setColor(isDarkMode ? new Color(80, 80, 80, 200) : new Color(220, 220, 220, 200));
-                } else {
-                    g2.setColor(isDarkMode ? new Color(60, 60, 60, 200) : new Color(240, 240, 240, 200));
-                }
-
-                if (isFrostedButtons) {
-                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-                }
-
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
-
-                // Paint border
-                g2.setColor(isDarkMode ? Color.WHITE : Color.BLACK);
-                g2.setStroke(new BasicStroke(1.5f));
-                g2.drawRoundRect(0, 0, getWidth()-1, getHeight()-1, 20, 20);
-
-                // Paint text
-                g2.setColor(isDarkMode ? Color.WHITE : Color.BLACK);
-                g2.setFont(getFont());
-                FontMetrics fm = g2.getFontMetrics();
-                Rectangle stringBounds = fm.getStringBounds(this.getText(), g2).getBounds();
-                int textX = (getWidth() - stringBounds.width) / 2;
-                int textY = (getHeight() - stringBounds.height) / 2 + fm.getAscent();
-                g2.drawString(getText(), textX, textY);
-                g2.dispose();
-            }
-        };
-
-        button.setFocusable(false);
-        button.setContentAreaFilled(false);
-        button.setBorderPainted(false);
+        JButton button = new PadButton(ButtonSkinCache.KIND_CONTROL, padButtonUI);
+        button.setText(text);
         button.setPreferredSize(new Dimension(120, 40));
-        button.setFont(new Font("SansSerif", Font.BOLD, 12));
+        button.setFont(CONTROL_BUTTON_FONT);
 
         return button;
     }
@@ -802,20 +1116,25 @@ public class VirtualNumpad extends JFrame {
      * Apply current theme to UI
      */
     private void applyTheme() {
-        if (isDarkMode) {
-            mainPanel.setBackground(Color.DARK_GRAY);
-            numpadPanel.setBackground(new Color(40, 40, 40));
-            statusLabel.setForeground(Color.WHITE);
-            modeLabel.setForeground(Color.LIGHT_GRAY);
-        } else {
-            mainPanel.setBackground(new Color(240, 240, 240));
-            numpadPanel.setBackground(new Color(240, 240, 240));
-            statusLabel.setForeground(Color.BLACK);
-            modeLabel.setForeground(Color.BLACK);
-        }
+        Palette palette = isDarkMode ? Palette.DARK : Palette.LIGHT;
+        mainPanel.setBackground(palette.windowBackground);
+        numpadPanel.setBackground(palette.numpadBackground);
+        statusLabel.setForeground(palette.statusText);
+        modeLabel.setForeground(palette.modeText);
 
-        // Update numpad buttons
-        updateNumpadButtons();
+        // Old theme skins are not needed anymore
+        padButtonUI.invalidateSkins();
+        updateButtonStyle();
+
+        // Buttons read the theme when painting
+        mainPanel.repaint();
+    }
+
+    /**
+     * Pass the current theme, mode and frosted state to the shared button UI
+     */
+    private void updateButtonStyle() {
+        padButtonUI.configure(isDarkMode ? Palette.DARK : Palette.LIGHT, isNumLockMode, isFrostedButtons);
     }
 
     /**
@@ -823,7 +1142,7 @@ public class VirtualNumpad extends JFrame {
      */
     private void setupSystemTray() {
         if (!SystemTray.isSupported()) {
-            System.out.println("System tray is not supported");
+            Log.warn("System tray is not supported");
             return;
         }
 
@@ -834,19 +1153,19 @@ public class VirtualNumpad extends JFrame {
 
         // Try to load icon from icon.ico file
         try {
-            File iconFile = new File("icon.ico");
-            if (iconFile.exists()) {
-                image = new ImageIcon("icon.ico").getImage();
-                System.out.println("Tray icon loaded from icon.ico");
+            URL iconUrl = iconResource();
+            if (iconUrl != null) {
+                image = new ImageIcon(iconUrl).getImage();
+                Log.info("Tray icon loaded from " + iconUrl);
             }
         } catch (Exception e) {
-            System.err.println("Error loading tray icon: " + e.getMessage());
+            Log.error("Error loading tray icon: " + e.getMessage());
         }
 
         // If icon.ico not found, create default icon
         if (image == null) {
             image = createTrayIconImage();
-            System.out.println("Using default tray icon (icon.ico not found)");
+            Log.info("Using default tray icon (icon.ico not found)");
         }
 
         // ==========================================
@@ -917,7 +1236,7 @@ public class VirtualNumpad extends JFrame {
         popup.add(exitItem);
 
         // Create tray icon
-        trayIcon = new TrayIcon(image, getTranslation("window.title"), popup);
+        trayIcon = new TrayIcon(image, getTranslation(TranslationKeys.WINDOW_TITLE), popup);
         trayIcon.setImageAutoSize(true);
 
         // Add double-click listener to restore window
@@ -931,7 +1250,7 @@ public class VirtualNumpad extends JFrame {
         try {
             systemTray.add(trayIcon);
         } catch (AWTException e) {
-            System.err.println("Failed to add tray icon: " + e.getMessage());
+            Log.error("Failed to add tray icon: " + e.getMessage());
         }
     }
 
@@ -971,284 +1290,114 @@ public class VirtualNumpad extends JFrame {
     }
 
     /**
-     * Update numpad buttons based on current mode
+     * Update numpad buttons based on current mode - only labels and fonts change
      */
     private void updateNumpadButtons() {
-        numpadPanel.removeAll();
-
-        String[][] keys = isNumLockMode ? numKeys : shortcutKeys;
+        KeyLayout layout = isNumLockMode ? numLayout : shortcutLayout;
+        GridLayout grid = (GridLayout) numpadPanel.getLayout();
+        if (numpadButtons == null || numpadButtons.length != layout.bindings.length ||
+                grid.getRows() != layout.rows || grid.getColumns() != layout.columns) {
+            rebuildNumpadGrid(layout);
+        }
 
-        for (int i = 0; i < keys.length; i++) {
-            for (int j = 0; j < keys[i].length; j++) {
-                String key = keys[i][j];
-                String buttonText = key;
+        updateButtonStyle();
 
-                // Translate button text for shortcut mode
-                if (!isNumLockMode) {
-                    buttonText = getTranslation("button." + key.toLowerCase());
-                }
+        Font font = isNumLockMode ? NUM_BUTTON_FONT : SHORTCUT_BUTTON_FONT;
+        for (int i = 0; i < numpadButtons.length; i++) {
+            KeyBinding binding = layout.bindings[i];
+            numpadButtons[i].setText(binding.labelId >= 0 ? getTranslation(binding.labelId) : binding.id);
+            numpadButtons[i].setFont(font);
+        }
 
-                JButton button = new JButton(buttonText) {
-                    @Override
-                    protected void paintComponent(Graphics g) {
-                        Graphics2D g2 = (Graphics2D) g.create();
-                        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                        // Paint background with rounded corners
-                        if (getModel().isArmed()) {
-                            g2.setColor(isDarkMode ? new Color(30, 30, 30, 200) : new Color(180, 180, 180, 200));
-                        } else if (getModel().isRollover()) {
-                            g2.setColor(isDarkMode ? new Color(50, 50, 50, 200) : new Color(200, 200, 200, 200));
-                        } else {
-                            if (isDarkMode) {
-                                g2.setColor(new Color(40, 40, 40, 200)); // Dark mode button color
-                            } else {
-                                if (isNumLockMode) {
-                                    g2.setColor(new Color(200, 220, 240, 200));
-                                } else {
-                                    g2.setColor(new Color(240, 220, 200, 200));
-                                }
-                            }
-                        }
+        numpadPanel.repaint();
+    }
 
-                        if (isFrostedButtons) {
-                            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f));
-                        }
+    /**
+     * Create the numpad buttons, only needed when the grid shape changes
+     */
+    private void rebuildNumpadGrid(KeyLayout layout) {
+        numpadPanel.removeAll();
+        numpadPanel.setLayout(new GridLayout(layout.rows, layout.columns, 10, 10));
+        numpadButtons = new JButton[layout.bindings.length];
 
-                        g2.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
-
-                        // Paint border
-                        g2.setColor(isDarkMode ? Color.WHITE : Color.BLACK);
-                        g2.setStroke(new BasicStroke(1.5f));
-                        g2.drawRoundRect(0, 0, getWidth()-1, getHeight()-1, 20, 20);
-
-                        // Paint text
-                        g2.setColor(isDarkMode ? Color.WHITE : Color.BLACK);
-                        g2.setFont(getFont());
-                        FontMetrics fm = g2.getFontMetrics();
-                        Rectangle stringBounds = fm.getStringBounds(this.getText(), g2).getBounds();
-                        int textX = (getWidth() - stringBounds.width) / 2;
-                        int textY = (getHeight() - stringBounds.height) / 2 + fm.getAscent();
-                        g2.drawString(getText(), textX, textY);
-                        g2.dispose();
-                    }
-                };
+        for (int i = 0; i < numpadButtons.length; i++) {
+            JButton button = new PadButton(ButtonSkinCache.KIND_NUMPAD, padButtonUI);
+            // The grid sizes its cells, a fixed preferred size lets relabeling skip the layout pass
+            button.setPreferredSize(new Dimension(110, 90));
 
-                button.setFont(new Font("SansSerif", Font.BOLD, isNumLockMode ? 16 : 12));
-                button.setFocusable(false);
-                button.setContentAreaFilled(false);
-                button.setBorderPainted(false);
+            final int index = i;
+            button.addActionListener(e -> buttonClicked(index, e.getWhen()));
 
-                final String actionKey = key;
-                button.addActionListener(e -> buttonClicked(actionKey));
+            // Press-and-hold repeats the key like a real numpad
+            ButtonModel model = button.getModel();
+            model.addChangeListener(e -> numpadButtonStateChanged(index, model));
 
-                numpadPanel.add(button);
-            }
+            numpadButtons[i] = button;
+            numpadPanel.add(button);
         }
 
         numpadPanel.revalidate();
-        numpadPanel.repaint();
     }
 
     /**
-     * Handle button click events
+     * Start or stop auto-repeat when a numpad button is held or released
      */
-    private void buttonClicked(String key) {
-        if (isNumLockMode) {
-            // Number mode: simulate key press
-            simulateKeyPress(key);
-            if (showNotifications) {
-                JOptionPane.showMessageDialog(this,
-                        getTranslation("message.input") + ": " + key,
-                        getTranslation("mode.num"),
-                        JOptionPane.INFORMATION_MESSAGE);
-            }
-        } else {
-            // Shortcut mode: execute corresponding function
-            executeShortcut(key);
+    private void numpadButtonStateChanged(int index, ButtonModel model) {
+        KeyLayout layout = isNumLockMode ? numLayout : shortcutLayout;
+        KeyBinding binding = layout.bindings[index];
+
+        if (!model.isPressed()) {
+            autoRepeat.stop();
+        } else if (!model.isArmed()) {
+            // Dragged off the button, it stays held until released
+            autoRepeat.pause();
+        } else if (layout.repeatable && binding.macro != null) {
+            autoRepeat.start(binding.macro);
         }
     }
 
     /**
-     * Simulate key press using Robot class - FIXED VERSION for numpad keys
+     * Handle button click events - the binding is a direct table lookup
      */
-    private void simulateKeyPress(String key) {
-        try {
-            Robot robot = new Robot();
+    private void buttonClicked(int index, long when) {
+        KeyBinding binding = (isNumLockMode ? numLayout : shortcutLayout).bindings[index];
 
-            // Use numpad key codes for all keys to simulate real numpad
-            switch (key) {
-                case "0":
-                    robot.keyPress(KeyEvent.VK_NUMPAD0);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD0);
-                    break;
-                case "1":
-                    robot.keyPress(KeyEvent.VK_NUMPAD1);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD1);
-                    break;
-                case "2":
-                    robot.keyPress(KeyEvent.VK_NUMPAD2);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD2);
-                    break;
-                case "3":
-                    robot.keyPress(KeyEvent.VK_NUMPAD3);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD3);
-                    break;
-                case "4":
-                    robot.keyPress(KeyEvent.VK_NUMPAD4);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD4);
-                    break;
-                case "5":
-                    robot.keyPress(KeyEvent.VK_NUMPAD5);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD5);
-                    break;
-                case "6":
-                    robot.keyPress(KeyEvent.VK_NUMPAD6);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD6);
-                    break;
-                case "7":
-                    robot.keyPress(KeyEvent.VK_NUMPAD7);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD7);
-                    break;
-                case "8":
-                    robot.keyPress(KeyEvent.VK_NUMPAD8);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD8);
-                    break;
-                case "9":
-                    robot.keyPress(KeyEvent.VK_NUMPAD9);
-                    robot.keyRelease(KeyEvent.VK_NUMPAD9);
-                    break;
-                case ".":
-                    robot.keyPress(KeyEvent.VK_DECIMAL);
-                    robot.keyRelease(KeyEvent.VK_DECIMAL);
-                    break;
-                case "=":
-                    robot.keyPress(KeyEvent.VK_ENTER);
-                    robot.keyRelease(KeyEvent.VK_ENTER);
-                    break;
-                case "+":
-                    // Use numpad plus key
-                    robot.keyPress(KeyEvent.VK_ADD);
-                    robot.keyRelease(KeyEvent.VK_ADD);
-                    break;
-                case "-":
-                    // Use numpad minus key
-                    robot.keyPress(KeyEvent.VK_SUBTRACT);
-                    robot.keyRelease(KeyEvent.VK_SUBTRACT);
-                    break;
-                case "*":
-                    // Use numpad multiply key
-                    robot.keyPress(KeyEvent.VK_MULTIPLY);
-                    robot.keyRelease(KeyEvent.VK_MULTIPLY);
-                    break;
-                case "/":
-                    // Use numpad divide key
-                    robot.keyPress(KeyEvent.VK_DIVIDE);
-                    robot.keyRelease(KeyEvent.VK_DIVIDE);
-                    break;
+        // The click after a held key only releases it
+        if (autoRepeat.finish()) {
+            return;
+        }
+
+        if (binding.macro != null) {
+            // Latency is measured from the mouse release that produced the click
+            long sinceEvent = Math.max(0, System.currentTimeMillis() - when);
+            keyInjector.submit(binding.macro, System.nanoTime() - sinceEvent * 1_000_000L);
+        }
+        if (binding.command != null) {
+            binding.command.run();
+        }
+
+        if (showNotifications) {
+            if (isNumLockMode) {
+                toast.showItem(getTranslation(TranslationKeys.MESSAGE_INPUT), binding.id);
+            } else if (binding.command == null) {
+                toast.showItem(getTranslation(TranslationKeys.MESSAGE_EXECUTE),
+                        binding.labelId >= 0 ? getTranslation(binding.labelId) : binding.id);
             }
-        } catch (AWTException e) {
-            System.err.println("Error simulating key press: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Execute shortcut command
-     */
-    private void executeShortcut(String shortcut) {
-        switch (shortcut) {
-            case "TOGGLE_TOP":
-                toggleAlwaysOnTop();
-                break;
-            case "TOGGLE_MODE":
-                toggleNumLockMode();
-                break;
-            case "TOGGLE_THEME":
-                toggleTheme();
-                break;
-            case "COPY":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.copy"));
-                }
-                break;
-            case "PASTE":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.paste"));
-                }
-                break;
-            case "SAVE":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.save"));
-                }
-                break;
-            case "CUT":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.cut"));
-                }
-                break;
-            case "UNDO":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.undo"));
-                }
-                break;
-            case "REDO":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.redo"));
-                }
-                break;
-            case "NEW":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.new"));
-                }
-                break;
-            case "OPEN":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.open"));
-                }
-                break;
-            case "FIND":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.find"));
-                }
-                break;
-            case "REPLACE":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.replace"));
-                }
-                break;
-            case "PRINT":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.print"));
-                }
-                break;
-            case "HELP":
-                if (showNotifications) {
-                    JOptionPane.showMessageDialog(this,
-                            getTranslation("message.execute") + ": " + getTranslation("button.help"));
-                }
-                break;
-            case "EXIT":
-                int confirm = JOptionPane.showConfirmDialog(this,
-                        getTranslation("message.exit.confirm"),
-                        getTranslation("button.exit"),
-                        JOptionPane.YES_NO_OPTION);
-                if (confirm == JOptionPane.YES_OPTION) {
-                    removeTrayIcon();
-                    savePreferences();
-                    System.exit(0);
-                }
-                break;
+        }
+    }
+
+    /**
+     * Ask for confirmation and exit
+     */
+    private void confirmExit() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+                getTranslation(TranslationKeys.MESSAGE_EXIT_CONFIRM),
+                getTranslation(TranslationKeys.BUTTON_EXIT),
+                JOptionPane.YES_NO_OPTION);
+        if (confirm == JOptionPane.YES_OPTION) {
+            removeTrayIcon();
+            savePreferences();
+            System.exit(0);
         }
     }
 
@@ -1315,13 +1464,9 @@ public class VirtualNumpad extends JFrame {
 
         // Only show notification if enabled
         if (showNotifications) {
-            String message = isAlwaysOnTop ?
-                    getTranslation("message.toggle.top.on") :
-                    getTranslation("message.toggle.top.off");
-            JOptionPane.showMessageDialog(this,
-                    message,
-                    getTranslation("status.label"),
-                    JOptionPane.INFORMATION_MESSAGE);
+            toast.show(isAlwaysOnTop ?
+                    getTranslation(TranslationKeys.MESSAGE_TOGGLE_TOP_ON) :
+                    getTranslation(TranslationKeys.MESSAGE_TOGGLE_TOP_OFF));
         }
     }
 
@@ -1341,13 +1486,9 @@ public class VirtualNumpad extends JFrame {
 
         // Only show notification if enabled
         if (showNotifications) {
-            String message = isNumLockMode ?
-                    getTranslation("message.mode.num") :
-                    getTranslation("message.mode.shortcut");
-            JOptionPane.showMessageDialog(this,
-                    message,
-                    getTranslation("mode.label"),
-                    JOptionPane.INFORMATION_MESSAGE);
+            toast.show(isNumLockMode ?
+                    getTranslation(TranslationKeys.MESSAGE_MODE_NUM) :
+                    getTranslation(TranslationKeys.MESSAGE_MODE_SHORTCUT));
         }
     }
 
@@ -1366,13 +1507,9 @@ public class VirtualNumpad extends JFrame {
 
         // Only show notification if enabled
         if (showNotifications) {
-            String message = isDarkMode ?
-                    getTranslation("message.theme.dark") :
-                    getTranslation("message.theme.light");
-            JOptionPane.showMessageDialog(this,
-                    message,
-                    getTranslation("menu.skins"),
-                    JOptionPane.INFORMATION_MESSAGE);
+            toast.show(isDarkMode ?
+                    getTranslation(TranslationKeys.MESSAGE_THEME_DARK) :
+                    getTranslation(TranslationKeys.MESSAGE_THEME_LIGHT));
         }
     }
 
@@ -1405,7 +1542,7 @@ public class VirtualNumpad extends JFrame {
      */
     private void setBackgroundImage() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle(getTranslation("button.background"));
+        fileChooser.setDialogTitle(getTranslation(TranslationKeys.BUTTON_BACKGROUND));
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             @Override
             public boolean accept(File f) {
@@ -1424,16 +1561,8 @@ public class VirtualNumpad extends JFrame {
 
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            backgroundImagePath = fileChooser.getSelectedFile().getAbsolutePath();
-            savePreferences();
-            mainPanel.repaint();
-
-            if (showNotifications) {
-                JOptionPane.showMessageDialog(this,
-                        getTranslation("message.background.set"),
-                        getTranslation("menu.skins"),
-                        JOptionPane.INFORMATION_MESSAGE);
-            }
+            // Decode off the EDT, the current background stays until the new one is ready
+            startBackgroundLoader(fileChooser.getSelectedFile(), true);
         }
     }
 
@@ -1441,15 +1570,90 @@ public class VirtualNumpad extends JFrame {
      * Clear background image
      */
     private void clearBackgroundImage() {
+        cancelBackgroundLoader();
         backgroundImagePath = null;
+        backgroundCache.clear();
         savePreferences();
         mainPanel.repaint();
 
         if (showNotifications) {
-            JOptionPane.showMessageDialog(this,
-                    getTranslation("message.background.removed"),
-                    getTranslation("menu.skins"),
-                    JOptionPane.INFORMATION_MESSAGE);
+            toast.show(getTranslation(TranslationKeys.MESSAGE_BACKGROUND_REMOVED));
+        }
+    }
+
+    /**
+     * Start decoding the saved background image, the theme color is shown until it is ready
+     */
+    private void loadBackgroundImage() {
+        if (backgroundImagePath == null) {
+            return;
+        }
+
+        File imgFile = new File(backgroundImagePath);
+        if (!imgFile.exists()) {
+            Log.warn("Background image not found: " + backgroundImagePath);
+            return;
+        }
+
+        startBackgroundLoader(imgFile, false);
+    }
+
+    /**
+     * Start a background decode, cancelling any decode still in flight
+     */
+    private void startBackgroundLoader(File file, boolean userSelected) {
+        cancelBackgroundLoader();
+        backgroundLoader = new BackgroundImageLoader(file, userSelected);
+        backgroundLoader.execute();
+    }
+
+    /**
+     * Cancel the in-flight background decode, if any
+     */
+    private void cancelBackgroundLoader() {
+        BackgroundImageLoader loader = backgroundLoader;
+        backgroundLoader = null;
+        if (loader != null) {
+            loader.cancel(false);
+        }
+    }
+
+    /**
+     * Called on the EDT when a background decode finished
+     */
+    private void backgroundImageLoaded(BackgroundImageLoader loader) {
+        if (loader != backgroundLoader) {
+            // A newer selection replaced this one
+            return;
+        }
+        backgroundLoader = null;
+
+        BufferedImage image;
+        try {
+            image = loader.get();
+        } catch (InterruptedException | ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Log.error("Error loading background image: " + cause.getMessage());
+            if (loader.userSelected) {
+                JOptionPane.showMessageDialog(this,
+                        getTranslation(TranslationKeys.MESSAGE_BACKGROUND_ERROR),
+                        getTranslation(TranslationKeys.MENU_SKINS),
+                        JOptionPane.ERROR_MESSAGE);
+            }
+            return;
+        }
+
+        // Swap the new image in with a single repaint
+        backgroundCache.set(image);
+        mainPanel.repaint();
+
+        if (loader.userSelected) {
+            backgroundImagePath = loader.file.getAbsolutePath();
+            savePreferences();
+
+            if (showNotifications) {
+                toast.show(getTranslation(TranslationKeys.MESSAGE_BACKGROUND_SET));
+            }
         }
     }
 
@@ -1457,7 +1661,7 @@ public class VirtualNumpad extends JFrame {
      * Toggle between available languages
      */
     private void toggleLanguage() {
-        List<String> langCodes = new ArrayList<>(languages.keySet());
+        List<String> langCodes = languages.codes();
         if (langCodes.size() > 1) {
             int currentIndex = langCodes.indexOf(currentLangCode);
             int nextIndex = (currentIndex + 1) % langCodes.size();
@@ -1465,13 +1669,47 @@ public class VirtualNumpad extends JFrame {
         }
     }
 
+    /**
+     * Reload language files from disk and relabel the UI
+     */
+    private void reloadLanguages() {
+        loadLanguages();
+        updateLanguageComboBox();
+        updateUIForNewLanguage();
+    }
+
+    /**
+     * Drop cached skins, glyph layouts and the scaled background, they are rebuilt on the next paint
+     */
+    private void clearCaches() {
+        padButtonUI.invalidateSkins();
+        padButtonUI.invalidateLabels();
+        backgroundCache.trim();
+        updateNumpadButtons();
+        repaint();
+    }
+
+    /**
+     * Register the platform MBean, a failure only disables monitoring
+     */
+    private void registerManagementBean() {
+        try {
+            ObjectName name = new ObjectName("VirtualNumpad:type=Numpad");
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new NumpadManagement(), NumpadMXBean.class, true), name);
+        } catch (JMException e) {
+            Log.error("Error registering management bean: " + e.getMessage());
+        }
+    }
+
     /**
      * Change to a specific language
      */
     private void changeLanguage(String langCode) {
-        if (languages.containsKey(langCode)) {
+        Language language = languages.get(langCode);
+        if (language != null) {
             currentLangCode = langCode;
-            currentLanguage = languages.get(langCode);
+            currentLanguage = language;
             updateUIForNewLanguage();
 
             // Save preference
@@ -1479,12 +1717,7 @@ public class VirtualNumpad extends JFrame {
 
             // Only show notification if enabled
             if (showNotifications) {
-                String displayName = getLanguageDisplayName(langCode);
-
-                JOptionPane.showMessageDialog(this,
-                        getTranslation("message.language.changed") + displayName,
-                        getTranslation("menu.language"),
-                        JOptionPane.INFORMATION_MESSAGE);
+                toast.show(getTranslation(TranslationKeys.MESSAGE_LANGUAGE_CHANGED) + getLanguageDisplayName(langCode));
             }
         }
     }
@@ -1525,30 +1758,30 @@ public class VirtualNumpad extends JFrame {
      */
     private void updateUIForNewLanguage() {
         // Update window title
-        setTitle(getTranslation("window.title") + " - " + getTranslation("author.info"));
+        setTitle(getTranslation(TranslationKeys.WINDOW_TITLE) + " - " + getTranslation(TranslationKeys.AUTHOR_INFO));
 
         // Update menu bar
         JMenuBar menuBar = getJMenuBar();
         if (menuBar != null && menuBar.getMenuCount() >= 4) {
-            menuBar.getMenu(0).setText(getTranslation("menu.language"));
-            menuBar.getMenu(1).setText(getTranslation("menu.skins"));
-            menuBar.getMenu(2).setText(getTranslation("menu.notifications"));
-            menuBar.getMenu(3).setText(getTranslation("menu.about"));
+            menuBar.getMenu(0).setText(getTranslation(TranslationKeys.MENU_LANGUAGE));
+            menuBar.getMenu(1).setText(getTranslation(TranslationKeys.MENU_SKINS));
+            menuBar.getMenu(2).setText(getTranslation(TranslationKeys.MENU_NOTIFICATIONS));
+            menuBar.getMenu(3).setText(getTranslation(TranslationKeys.MENU_ABOUT));
 
             // 更新 languageMenuItem 的文本
             if (languageMenuItem != null) {
-                languageMenuItem.setText(getTranslation("menu.language"));
+                languageMenuItem.setText(getTranslation(TranslationKeys.MENU_LANGUAGE));
             }
 
             // Update skins menu items
             JMenu skinsMenu = menuBar.getMenu(1);
             if (skinsMenu.getItemCount() >= 6) {
-                skinsMenu.getItem(0).setText(getTranslation("tray.theme.light"));
-                skinsMenu.getItem(1).setText(getTranslation("tray.theme.dark"));
-                skinsMenu.getItem(3).setText(getTranslation("button.background"));
-                skinsMenu.getItem(4).setText(getTranslation("button.clear.background"));
+                skinsMenu.getItem(0).setText(getTranslation(TranslationKeys.TRAY_THEME_LIGHT));
+                skinsMenu.getItem(1).setText(getTranslation(TranslationKeys.TRAY_THEME_DARK));
+                skinsMenu.getItem(3).setText(getTranslation(TranslationKeys.BUTTON_BACKGROUND));
+                skinsMenu.getItem(4).setText(getTranslation(TranslationKeys.BUTTON_CLEAR_BACKGROUND));
                 if (skinsMenu.getItemCount() > 6) {
-                    ((JCheckBoxMenuItem)skinsMenu.getItem(6)).setText(getTranslation("button.frosted"));
+                    ((JCheckBoxMenuItem)skinsMenu.getItem(6)).setText(getTranslation(TranslationKeys.BUTTON_FROSTED));
                 }
             }
 
@@ -1557,38 +1790,26 @@ public class VirtualNumpad extends JFrame {
             if (notificationsMenu.getItemCount() > 0) {
                 JCheckBoxMenuItem notificationsItem = (JCheckBoxMenuItem) notificationsMenu.getItem(0);
                 notificationsItem.setText(showNotifications ?
-                        getTranslation("menu.notifications.on") : getTranslation("menu.notifications.off"));
+                        getTranslation(TranslationKeys.MENU_NOTIFICATIONS_ON) : getTranslation(TranslationKeys.MENU_NOTIFICATIONS_OFF));
             }
 
             // Update about menu item
             JMenu aboutMenu = menuBar.getMenu(3);
             if (aboutMenu.getItemCount() > 0) {
-                aboutMenu.getItem(0).setText(getTranslation("menu.about"));
+                aboutMenu.getItem(0).setText(getTranslation(TranslationKeys.MENU_ABOUT));
             }
         }
 
-        // Update buttons in control panel (manually recreate them with new text)
-        JPanel controlPanel = (JPanel)mainPanel.getComponent(2);
-        controlPanel.removeAll();
-
-        JButton toggleTopBtn = createRoundedButton(getTranslation("button.toggle.top"));
-        toggleTopBtn.addActionListener(e -> toggleAlwaysOnTop());
-
-        JButton toggleModeBtn = createRoundedButton(getTranslation("button.toggle.mode"));
-        toggleModeBtn.addActionListener(e -> toggleNumLockMode());
-
-        JButton toggleThemeBtn = createRoundedButton(getTranslation("button.toggle.theme"));
-        toggleThemeBtn.addActionListener(e -> toggleTheme());
-
-        controlPanel.add(toggleTopBtn);
-        controlPanel.add(toggleModeBtn);
-        controlPanel.add(toggleThemeBtn);
+        // Update buttons in control panel
+        toggleTopBtn.setText(getTranslation(TranslationKeys.BUTTON_TOGGLE_TOP));
+        toggleModeBtn.setText(getTranslation(TranslationKeys.BUTTON_TOGGLE_MODE));
+        toggleThemeBtn.setText(getTranslation(TranslationKeys.BUTTON_TOGGLE_THEME));
 
         // Update author label
-        ((JLabel)((JPanel)mainPanel.getComponent(0)).getComponent(2))
-                .setText(getTranslation("author.info"));
+        authorLabel.setText(getTranslation(TranslationKeys.AUTHOR_INFO));
 
         // Update numpad buttons
+        padButtonUI.invalidateLabels();
         updateNumpadButtons();
 
         // Update status
@@ -1596,17 +1817,11 @@ public class VirtualNumpad extends JFrame {
 
         // Update tray icon tooltip
         if (trayIcon != null) {
-            trayIcon.setToolTip(getTranslation("window.title"));
+            trayIcon.setToolTip(getTranslation(TranslationKeys.WINDOW_TITLE));
         }
 
         // Update tray menu - BUT KEEP ENGLISH
         updateTrayMenu();
-
-        // Repaint the window
-        controlPanel.revalidate();
-        controlPanel.repaint();
-        revalidate();
-        repaint();
     }
 
     /**
@@ -1614,14 +1829,14 @@ public class VirtualNumpad extends JFrame {
      */
     private void updateStatus() {
         String topStatus = isAlwaysOnTop ?
-                getTranslation("top.on") :
-                getTranslation("top.off");
+                getTranslation(TranslationKeys.TOP_ON) :
+                getTranslation(TranslationKeys.TOP_OFF);
         String modeStatus = isNumLockMode ?
-                getTranslation("mode.num") :
-                getTranslation("mode.shortcut");
+                getTranslation(TranslationKeys.MODE_NUM) :
+                getTranslation(TranslationKeys.MODE_SHORTCUT);
 
-        statusLabel.setText(getTranslation("status.label") + ": " + topStatus);
-        modeLabel.setText(getTranslation("mode.label") + ": " + modeStatus);
+        statusLabel.setText(getTranslation(TranslationKeys.STATUS_LABEL) + ": " + topStatus);
+        modeLabel.setText(getTranslation(TranslationKeys.MODE_LABEL) + ": " + modeStatus);
 
         // Change color based on status
         if (isAlwaysOnTop) {
@@ -1631,35 +1846,3131 @@ public class VirtualNumpad extends JFrame {
         }
     }
 
+    /**
+     * Create the diagnostics menu - diagnostics are always in English
+     */
+    private JMenu createDiagnosticsMenu() {
+        JMenu diagnosticsMenu = new JMenu("Diagnostics");
+        diagnosticsMenu.setFocusable(false);
+
+        JCheckBoxMenuItem paintStatsItem = new JCheckBoxMenuItem("Paint Timing", paintStats.isEnabled());
+        paintStatsItem.setFocusable(false);
+        paintStatsItem.addActionListener(e -> paintStats.setEnabled(paintStatsItem.isSelected()));
+        diagnosticsMenu.add(paintStatsItem);
+
+        JMenuItem resetPaintStatsItem = new JMenuItem("Reset Paint Timing");
+        resetPaintStatsItem.setFocusable(false);
+        resetPaintStatsItem.addActionListener(e -> paintStats.reset());
+        diagnosticsMenu.add(resetPaintStatsItem);
+        diagnosticsMenu.addSeparator();
+
+        JMenuItem logItem = new JMenuItem("Recent Log...");
+        logItem.setFocusable(false);
+        logItem.addActionListener(e -> showDiagnosticsText("Recent Log", Log.recent()));
+        diagnosticsMenu.add(logItem);
+
+        JCheckBoxMenuItem debugLogItem = new JCheckBoxMenuItem("Debug Logging", Log.isDebugEnabled());
+        debugLogItem.setFocusable(false);
+        debugLogItem.addActionListener(e -> Log.setDebugEnabled(debugLogItem.isSelected()));
+        diagnosticsMenu.add(debugLogItem);
+        diagnosticsMenu.addSeparator();
+
+        JMenuItem startupItem = new JMenuItem("Startup Phases...");
+        startupItem.setFocusable(false);
+        startupItem.addActionListener(e -> showDiagnosticsText("Startup Phases", startup.report()));
+        diagnosticsMenu.add(startupItem);
+
+        JMenuItem missingKeysItem = new JMenuItem("Missing Translations...");
+        missingKeysItem.setFocusable(false);
+        missingKeysItem.addActionListener(e -> showDiagnosticsText("Missing Translations", languages.missingKeyReport()));
+        diagnosticsMenu.add(missingKeysItem);
+        diagnosticsMenu.addSeparator();
+
+        JMenuItem latencyItem = new JMenuItem("Key Latency...");
+        latencyItem.setFocusable(false);
+        latencyItem.addActionListener(e -> showDiagnosticsText("Key Latency",
+                "Click to last key event: " + keyInjector.latency.summary()
+                        + "\nDropped (queue full): " + keyInjector.dropped()));
+        diagnosticsMenu.add(latencyItem);
+
+        JMenuItem dumpLatencyItem = new JMenuItem("Save Key Latency...");
+        dumpLatencyItem.setFocusable(false);
+        dumpLatencyItem.addActionListener(e -> saveLatencyHistogram());
+        diagnosticsMenu.add(dumpLatencyItem);
+
+        JMenuItem selfTestItem = new JMenuItem("Key Latency Self-Test");
+        selfTestItem.setFocusable(false);
+        selfTestItem.addActionListener(e -> new LatencySelfTest().start());
+        diagnosticsMenu.add(selfTestItem);
+
+        return diagnosticsMenu;
+    }
+
+    /**
+     * Show diagnostics text in a scrollable message dialog
+     */
+    private void showDiagnosticsText(String title, String text) {
+        JTextArea textArea = new JTextArea(text);
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(560, 240));
+
+        JOptionPane.showMessageDialog(this, scrollPane, title, JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Save the key latency histogram to a file chosen by the user
+     */
+    private void saveLatencyHistogram() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Key Latency");
+        fileChooser.setSelectedFile(new File("key-latency.txt"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = fileChooser.getSelectedFile();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            writer.println("# Click to last key event: " + keyInjector.latency.summary());
+            keyInjector.latency.writeTo(writer);
+        } catch (IOException e) {
+            Log.error("Error saving key latency: " + e.getMessage());
+        }
+    }
+
     /**
      * Show about dialog
      */
     private void showAboutDialog() {
         String aboutText = "<html><center>" +
-                "<h2>" + getTranslation("about.title") + "</h2>" +
-                "<p>" + getTranslation("about.version") + "</p>" +
-                "<p><b>" + getTranslation("author.info") + "</b></p>" +
-                "<p>" + getTranslation("about.features") + "</p>" +
-                "<p>" + getTranslation("about.shortcuts") + "</p>" +
+                "<h2>" + getTranslation(TranslationKeys.ABOUT_TITLE) + "</h2>" +
+                "<p>" + getTranslation(TranslationKeys.ABOUT_VERSION) + "</p>" +
+                "<p><b>" + getTranslation(TranslationKeys.AUTHOR_INFO) + "</b></p>" +
+                "<p>" + getTranslation(TranslationKeys.ABOUT_FEATURES) + "</p>" +
+                "<p>" + getTranslation(TranslationKeys.ABOUT_SHORTCUTS) + "</p>" +
                 "<p>Notifications: " + (showNotifications ? "Enabled" : "Disabled") + "</p>" +
                 "<p>Theme: " + (isDarkMode ? "Dark" : "Light") + "</p>" +
                 "<p>Background: " + (backgroundImagePath != null ? "Custom" : "Default") + "</p>" +
                 "<p>Frosted Buttons: " + (isFrostedButtons ? "Enabled" : "Disabled") + "</p>" +
                 "<p>Available Languages: " + languages.size() + "</p>" +
+                paintStats.toHtml() +
                 "</center></html>";
 
         JOptionPane.showMessageDialog(this,
                 aboutText,
-                getTranslation("menu.about"),
+                getTranslation(TranslationKeys.MENU_ABOUT),
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
     /**
-     * Main method
+     * Ids for the translation keys the code looks up: the constants below and
+     * the button labels of the loaded layouts. Keys that only appear in
+     * language files get no id, so the table stays as small as the UI
      */
-    public static void main(String[] args) {
-        // Set UTF-8 as default encoding
-        System.setProperty("file.encoding", "UTF-8");
+    static final class TranslationKeys {
+        private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        // Replaced on every intern, so name() needs no lock
+        private static volatile String[] names = new String[0];
+
+        // Ids for the keys the UI uses
+        static final int ABOUT_FEATURES = intern("about.features");
+        static final int ABOUT_SHORTCUTS = intern("about.shortcuts");
+        static final int ABOUT_TITLE = intern("about.title");
+        static final int ABOUT_VERSION = intern("about.version");
+        static final int AUTHOR_INFO = intern("author.info");
+        static final int BUTTON_BACKGROUND = intern("button.background");
+        static final int BUTTON_CLEAR_BACKGROUND = intern("button.clear.background");
+        static final int BUTTON_EXIT = intern("button.exit");
+        static final int BUTTON_FROSTED = intern("button.frosted");
+        static final int BUTTON_TOGGLE_MODE = intern("button.toggle.mode");
+        static final int BUTTON_TOGGLE_THEME = intern("button.toggle.theme");
+        static final int BUTTON_TOGGLE_TOP = intern("button.toggle.top");
+        static final int MENU_ABOUT = intern("menu.about");
+        static final int MENU_LANGUAGE = intern("menu.language");
+        static final int MENU_NOTIFICATIONS = intern("menu.notifications");
+        static final int MENU_NOTIFICATIONS_OFF = intern("menu.notifications.off");
+        static final int MENU_NOTIFICATIONS_ON = intern("menu.notifications.on");
+        static final int MENU_SKINS = intern("menu.skins");
+        static final int MESSAGE_BACKGROUND_ERROR = intern("message.background.error");
+        static final int MESSAGE_BACKGROUND_REMOVED = intern("message.background.removed");
+        static final int MESSAGE_BACKGROUND_SET = intern("message.background.set");
+        static final int MESSAGE_EXECUTE = intern("message.execute");
+        static final int MESSAGE_EXIT_CONFIRM = intern("message.exit.confirm");
+        static final int MESSAGE_FROSTED_OFF = intern("message.frosted.off");
+        static final int MESSAGE_FROSTED_ON = intern("message.frosted.on");
+        static final int MESSAGE_INPUT = intern("message.input");
+        static final int MESSAGE_LANGUAGE_CHANGED = intern("message.language.changed");
+        static final int MESSAGE_MODE_NUM = intern("message.mode.num");
+        static final int MESSAGE_MODE_SHORTCUT = intern("message.mode.shortcut");
+        static final int MESSAGE_THEME_DARK = intern("message.theme.dark");
+        static final int MESSAGE_THEME_LIGHT = intern("message.theme.light");
+        static final int MESSAGE_TOGGLE_TOP_OFF = intern("message.toggle.top.off");
+        static final int MESSAGE_TOGGLE_TOP_ON = intern("message.toggle.top.on");
+        static final int MODE_LABEL = intern("mode.label");
+        static final int MODE_NUM = intern("mode.num");
+        static final int MODE_SHORTCUT = intern("mode.shortcut");
+        static final int STATUS_LABEL = intern("status.label");
+        static final int TOP_OFF = intern("top.off");
+        static final int TOP_ON = intern("top.on");
+        static final int TRAY_THEME_DARK = intern("tray.theme.dark");
+        static final int TRAY_THEME_LIGHT = intern("tray.theme.light");
+        static final int WINDOW_TITLE = intern("window.title");
+
+        /**
+         * Get the id of a key the code looks up, assigning a new one if the key is new
+         */
+        static synchronized int intern(String key) {
+            Integer id = ids.get(key);
+            if (id == null) {
+                String[] grown = Arrays.copyOf(names, names.length + 1);
+                id = names.length;
+                grown[id] = key;
+                names = grown;
+                ids.put(key, id);
+            }
+            return id;
+        }
+
+        /**
+         * Get the id of a key, or -1 if the code never looks it up
+         */
+        static int find(String key) {
+            Integer id = ids.get(key);
+            return id != null ? id : -1;
+        }
+
+        static String name(int id) {
+            return names[id];
+        }
+
+        static int size() {
+            return names.length;
+        }
+    }
+
+    /**
+     * Translations of one language. Keys with a TranslationKeys id are kept in
+     * an array indexed by that id, sized to the highest id this language has,
+     * and the keys only the language files know are kept by name. Instances
+     * are immutable, so switching language is a reference swap
+     */
+    static final class Language {
+        static final Language EMPTY = new Language(new String[0], Collections.emptyMap(), 0);
+
+        private final String[] values;
+        private final Map<String, String> others;
+        private final int size;
+
+        private Language(String[] values, Map<String, String> others, int size) {
+            this.values = values;
+            this.others = others;
+            this.size = size;
+        }
+
+        /**
+         * Get the value for a key id, null if this language lacks it
+         */
+        String get(int id) {
+            if (id < 0) {
+                return null;
+            }
+            if (id < values.length) {
+                return values[id];
+            }
+            // Interned after this language was built
+            return others.isEmpty() ? null : others.get(TranslationKeys.name(id));
+        }
+
+        /**
+         * Get the value for a key by name, null if this language lacks it
+         */
+        String get(String key) {
+            int id = TranslationKeys.find(key);
+            return id >= 0 ? get(id) : others.get(key);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Visit every key and value, in no particular order
+         */
+        void forEach(BiConsumer<String, String> action) {
+            for (int id = 0; id < values.length; id++) {
+                if (values[id] != null) {
+                    action.accept(TranslationKeys.name(id), values[id]);
+                }
+            }
+            others.forEach(action);
+        }
+
+        /**
+         * Copy of this language with its missing keys taken from another one
+         */
+        Language withFallback(Language fallback) {
+            Builder builder = new Builder();
+            forEach(builder::put);
+            fallback.forEach((key, value) -> {
+                if (get(key) == null) {
+                    builder.put(key, value);
+                }
+            });
+            return builder.build();
+        }
+
+        static Language of(Map<String, String> translations) {
+            Builder builder = new Builder();
+            for (Map.Entry<String, String> translation : translations.entrySet()) {
+                builder.put(translation.getKey(), translation.getValue());
+            }
+            return builder.build();
+        }
+
+        static final class Builder {
+            private String[] values = new String[TranslationKeys.size()];
+            private final Map<String, String> others = new HashMap<>();
+            private int size;
+            private int length;
+
+            void put(String key, String value) {
+                int id = TranslationKeys.find(key);
+                if (id < 0) {
+                    if (others.put(key, value) == null) {
+                        size++;
+                    }
+                    return;
+                }
+
+                if (id >= values.length) {
+                    values = Arrays.copyOf(values, id + 1);
+                }
+                if (values[id] == null) {
+                    size++;
+                }
+                values[id] = value;
+                length = Math.max(length, id + 1);
+            }
+
+            Language build() {
+                return new Language(Arrays.copyOf(values, length),
+                        others.isEmpty() ? Collections.emptyMap() : new HashMap<>(others), size);
+            }
+        }
+    }
+
+    /**
+     * Index of the available languages. Startup only lists the files and reads
+     * a few header lines for the display name, full parses happen on first use
+     * and are kept in a small LRU cache. When an up-to-date LanguageBundle
+     * exists, the index and the languages come from it instead of the text files
+     */
+    static class LanguageCatalog {
+        private static final int HEADER_LINES = 8;
+        private static final String NAME_KEY = "language.name";
+        private static final int CACHE_SIZE = 4;
+        private static final String BASE_LANGUAGE = "en-us";
+        private static final String RESOURCE_DIR = "/languages/";
+        private static final String RESOURCE_LIST = RESOURCE_DIR + "languages.list";
+
+        private final File bundleDirectory;
+        private final Map<String, Language> defaults;
+        private LanguageBundle bundle;
+        private final Map<String, File> files = new TreeMap<>();
+        private final Map<String, String> resources = new TreeMap<>();
+        private final Map<String, String> displayNames = new HashMap<>();
+        private final Map<String, Language> builtIn = new TreeMap<>();
+        private final Map<String, Language> parsed =
+                new LinkedHashMap<String, Language>(CACHE_SIZE * 2, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Language> eldest) {
+                        return size() > CACHE_SIZE;
+                    }
+                };
+        // Languages with their fallback chain filled in, what the UI uses
+        private final Map<String, Language> merged =
+                new LinkedHashMap<String, Language>(CACHE_SIZE * 2, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Language> eldest) {
+                        return size() > CACHE_SIZE;
+                    }
+                };
+
+        LanguageCatalog(File bundleDirectory, Map<String, Language> defaults) {
+            this.bundleDirectory = bundleDirectory;
+            this.defaults = defaults;
+        }
+
+        void clear() {
+            bundle = null;
+            files.clear();
+            resources.clear();
+            displayNames.clear();
+            builtIn.clear();
+            parsed.clear();
+            merged.clear();
+        }
+
+        /**
+         * Offer the built-in languages as selectable languages
+         */
+        void useDefaults() {
+            for (Map.Entry<String, Language> language : defaults.entrySet()) {
+                addBuiltIn(language.getKey(), language.getValue());
+            }
+        }
+
+        /**
+         * List the language files of a directory without parsing them. A stale
+         * or missing bundle is rebuilt on the given executor
+         */
+        void index(File dir, Executor rebuilder) {
+            File[] candidates = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".txt"));
+            if (candidates == null) {
+                Log.info("No files found in directory: " + dir.getAbsolutePath());
+                return;
+            }
+
+            if (Log.isDebugEnabled()) {
+                Log.debug("Found " + candidates.length + " potential language files");
+            }
+            if (bundleDirectory != null && candidates.length > 0) {
+                File bundleFile = LanguageBundle.fileFor(bundleDirectory, dir);
+                bundle = LanguageBundle.open(bundleFile, candidates);
+                if (bundle != null) {
+                    for (LanguageBundle.Entry entry : bundle.entries()) {
+                        if (entry.langCode != null) {
+                            files.put(entry.langCode, new File(dir, entry.fileName));
+                            if (entry.displayName != null) {
+                                displayNames.put(entry.langCode, entry.displayName);
+                            }
+                        }
+                    }
+                    return;
+                }
+                rebuilder.execute(() -> LanguageBundle.write(bundleFile, candidates));
+            }
+
+            for (File file : candidates) {
+                String fileName = file.getName();
+                String langCode = fileName.substring(0, fileName.lastIndexOf('.'));
+
+                // Validate language code format (xx-xx or xx_xx)
+                if (langCode.matches("^[a-z]{2}[_-][a-z]{2}$")) {
+                    files.put(langCode, file);
+                    String name = readDisplayName(file);
+                    if (name != null) {
+                        displayNames.put(langCode, name);
+                    }
+                } else {
+                    Log.warn("Skipping file with invalid name format: " + fileName);
+                }
+            }
+        }
+
+        /**
+         * Replace one language with a freshly parsed file. The bundle no longer
+         * matches the directory, so lazy loads go back to the text files
+         */
+        void update(String langCode, ParsedLanguage language) {
+            bundle = null;
+            files.put(langCode, language.file);
+            if (language.displayName != null) {
+                displayNames.put(langCode, language.displayName);
+            } else {
+                displayNames.remove(langCode);
+            }
+            parsed.put(langCode, language.translations);
+            merged.clear();
+        }
+
+        void remove(String langCode) {
+            bundle = null;
+            files.remove(langCode);
+            displayNames.remove(langCode);
+            parsed.remove(langCode);
+            merged.clear();
+        }
+
+        /**
+         * Write a fresh bundle for a directory after its files changed
+         */
+        void rebuildBundle(File dir, Executor rebuilder) {
+            if (bundleDirectory == null) {
+                return;
+            }
+            File bundleFile = LanguageBundle.fileFor(bundleDirectory, dir);
+            rebuilder.execute(() -> {
+                File[] candidates = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".txt"));
+                if (candidates != null && candidates.length > 0) {
+                    LanguageBundle.write(bundleFile, candidates);
+                }
+            });
+        }
+
+        /**
+         * Index the languages packaged on the classpath. Resource folders
+         * cannot be listed everywhere (jars, native images), so they are
+         * named in languages.list
+         */
+        void indexResources() {
+            InputStream list = VirtualNumpad.class.getResourceAsStream(RESOURCE_LIST);
+            if (list == null) {
+                return;
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(list, "UTF-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String langCode = line.trim();
+                    if (langCode.isEmpty() || langCode.startsWith("#")) {
+                        continue;
+                    }
+                    if (!langCode.matches("^[a-z]{2}[_-][a-z]{2}$")) {
+                        Log.warn("Skipping packaged language with invalid code: " + langCode);
+                        continue;
+                    }
+
+                    String resource = RESOURCE_DIR + langCode + ".txt";
+                    InputStream input = VirtualNumpad.class.getResourceAsStream(resource);
+                    if (input == null) {
+                        Log.warn("Packaged language missing: " + resource);
+                        continue;
+                    }
+                    resources.put(langCode, resource);
+                    String name = readDisplayName(input);
+                    if (name != null) {
+                        displayNames.put(langCode, name);
+                    }
+                }
+                Log.info("Indexed " + resources.size() + " packaged languages");
+            } catch (IOException e) {
+                Log.error("Error reading " + RESOURCE_LIST + ": " + e.getMessage());
+            }
+        }
+
+        void addBuiltIn(String langCode, Language language) {
+            builtIn.put(langCode, language);
+            String name = language.get(NAME_KEY);
+            if (name != null) {
+                displayNames.put(langCode, name);
+            }
+        }
+
+        boolean isEmpty() {
+            return files.isEmpty() && resources.isEmpty() && builtIn.isEmpty();
+        }
+
+        int size() {
+            return codes().size();
+        }
+
+        /**
+         * Sorted language codes, including ones not parsed yet
+         */
+        List<String> codes() {
+            Set<String> codes = new TreeSet<>(files.keySet());
+            codes.addAll(resources.keySet());
+            codes.addAll(builtIn.keySet());
+            return new ArrayList<>(codes);
+        }
+
+        String displayName(String langCode) {
+            return displayNames.getOrDefault(langCode, langCode);
+        }
+
+        /**
+         * Get a language merged with its fallback chain, so every key the
+         * fallbacks know has a value. Returns null if it is unknown or empty
+         */
+        Language get(String langCode) {
+            Language language = merged.get(langCode);
+            if (language != null) {
+                return language;
+            }
+
+            Language own = raw(langCode);
+            if (own == null) {
+                return null;
+            }
+
+            language = own;
+            for (Language fallback : fallbacks(langCode).values()) {
+                language = language.withFallback(fallback);
+            }
+            if (language.size() > own.size()) {
+                Log.info("Language " + langCode + ": " + (language.size() - own.size()) +
+                        " missing keys filled from fallbacks");
+            }
+            merged.put(langCode, language);
+            return language;
+        }
+
+        /**
+         * Fallbacks in order: other variants of the same language, the base
+         * language, then the built-in variant and built-in base language
+         */
+        private Map<String, Language> fallbacks(String langCode) {
+            Map<String, Language> chain = new LinkedHashMap<>();
+            String primary = langCode.substring(0, 2);
+            for (String other : codes()) {
+                if (!other.equals(langCode) && other.startsWith(primary)) {
+                    putIfLoaded(chain, other, raw(other));
+                }
+            }
+            if (!langCode.equals(BASE_LANGUAGE)) {
+                putIfLoaded(chain, BASE_LANGUAGE, raw(BASE_LANGUAGE));
+            }
+            for (Map.Entry<String, Language> language : defaults.entrySet()) {
+                if (language.getKey().startsWith(primary)) {
+                    putIfLoaded(chain, "built-in " + language.getKey(), language.getValue());
+                }
+            }
+            putIfLoaded(chain, "built-in " + BASE_LANGUAGE, defaults.get(BASE_LANGUAGE));
+            return chain;
+        }
+
+        private static void putIfLoaded(Map<String, Language> chain, String name, Language language) {
+            if (language != null) {
+                chain.putIfAbsent(name, language);
+            }
+        }
+
+        /**
+         * For each language file, the keys it lacks and which fallback supplies them
+         */
+        String missingKeyReport() {
+            Language reference = get(BASE_LANGUAGE);
+            if (reference == null) {
+                reference = defaults.getOrDefault(BASE_LANGUAGE, Language.EMPTY);
+            }
+
+            StringBuilder report = new StringBuilder();
+            for (String langCode : codes()) {
+                Language own = raw(langCode);
+                if (own == null) {
+                    report.append(langCode).append(": could not be loaded\n\n");
+                    continue;
+                }
+
+                Map<String, Language> chain = fallbacks(langCode);
+                List<String> lines = new ArrayList<>();
+                reference.forEach((key, value) -> {
+                    if (own.get(key) != null) {
+                        return;
+                    }
+                    String source = "nowhere";
+                    for (Map.Entry<String, Language> fallback : chain.entrySet()) {
+                        if (fallback.getValue().get(key) != null) {
+                            source = fallback.getKey();
+                            break;
+                        }
+                    }
+                    lines.add("  " + key + " <- " + source);
+                });
+                Collections.sort(lines);
+
+                report.append(langCode).append(": ").append(lines.size()).append(" missing of ")
+                        .append(reference.size()).append('\n');
+                for (String line : lines) {
+                    report.append(line).append('\n');
+                }
+                report.append('\n');
+            }
+            return report.toString();
+        }
+
+        /**
+         * Get a language as written in its file, parsing it on first use
+         */
+        private Language raw(String langCode) {
+            Language language = builtIn.get(langCode);
+            if (language != null) {
+                return language;
+            }
+
+            language = parsed.get(langCode);
+            if (language != null) {
+                return language;
+            }
+
+            File file = files.get(langCode);
+            String resource = resources.get(langCode);
+            String source;
+            try {
+                if (file != null) {
+                    source = bundle != null ? "bundle" : file.getName();
+                    language = bundle != null ? bundle.read(langCode) : parseLanguageFile(file);
+                } else if (resource != null) {
+                    source = resource;
+                    InputStream input = VirtualNumpad.class.getResourceAsStream(resource);
+                    if (input == null) {
+                        throw new FileNotFoundException(resource);
+                    }
+                    language = parseLanguage(input);
+                } else {
+                    return null;
+                }
+            } catch (IOException e) {
+                Log.error("Error loading language " + langCode, e);
+                return null;
+            }
+
+            if (language.isEmpty()) {
+                Log.warn("Language " + source + " is empty or invalid");
+                return null;
+            }
+
+            Log.info("Successfully loaded language: " + langCode +
+                    " from " + source +
+                    " (" + language.size() + " translations)");
+            parsed.put(langCode, language);
+            return language;
+        }
+
+        /**
+         * Look for "language.name=" in the first lines of a file
+         */
+        static String readDisplayName(File file) {
+            try {
+                return readDisplayName(new FileInputStream(file));
+            } catch (IOException e) {
+                Log.error("Error reading language header: " + file.getName());
+                return null;
+            }
+        }
+
+        /**
+         * Look for "language.name=" in the first lines of a stream, which is closed afterwards
+         */
+        static String readDisplayName(InputStream input) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"))) {
+                for (int i = 0; i < HEADER_LINES; i++) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    line = line.trim();
+                    if (line.startsWith(NAME_KEY)) {
+                        int equals = line.indexOf('=');
+                        if (equals > 0 && line.substring(0, equals).trim().equals(NAME_KEY)) {
+                            return line.substring(equals + 1).trim();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Log.error("Error reading language header: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A language file parsed off the EDT
+     */
+    private static final class ParsedLanguage {
+        final File file;
+        final String displayName;
+        final Language translations;
+
+        ParsedLanguage(File file, String displayName, Language translations) {
+            this.file = file;
+            this.displayName = displayName;
+            this.translations = translations;
+        }
+    }
+
+    /**
+     * Precompiled binary copy of a languages directory, loaded with one read
+     * into a heap buffer. Each source file is recorded with its size and
+     * modification time, and the bundle is only used while all of them still match.
+     * Nothing keeps the file open or mapped, so a rebuild can replace it on any platform
+     */
+    private static final class LanguageBundle {
+        private static final int MAGIC = 0x564E4C42; // "VNLB"
+        private static final int VERSION = 1;
+
+        static final class Entry {
+            final String fileName;
+            final long size;
+            final long modified;
+            final String langCode;
+            final String displayName;
+            final int offset;
+
+            Entry(String fileName, long size, long modified, String langCode, String displayName, int offset) {
+                this.fileName = fileName;
+                this.size = size;
+                this.modified = modified;
+                this.langCode = langCode;
+                this.displayName = displayName;
+                this.offset = offset;
+            }
+        }
+
+        private final ByteBuffer buffer;
+        private final Map<String, Entry> entries;
+
+        private LanguageBundle(ByteBuffer buffer, Map<String, Entry> entries) {
+            this.buffer = buffer;
+            this.entries = entries;
+        }
+
+        /**
+         * Bundle file for a languages directory, one per directory
+         */
+        static File fileFor(File cacheDir, File languagesDir) {
+            String path;
+            try {
+                path = languagesDir.getCanonicalPath();
+            } catch (IOException e) {
+                path = languagesDir.getAbsolutePath();
+            }
+            return new File(cacheDir, "languages-" + Integer.toHexString(path.hashCode()) + ".bin");
+        }
+
+        Collection<Entry> entries() {
+            return entries.values();
+        }
+
+        /**
+         * Read a bundle and check it against the source files. Returns null when
+         * it is missing, corrupt or out of date
+         */
+        static LanguageBundle open(File bundleFile, File[] sources) {
+            if (!bundleFile.isFile()) {
+                return null;
+            }
+
+            try (FileChannel channel = FileChannel.open(bundleFile.toPath(), StandardOpenOption.READ)) {
+                // A mapping would pin the file until the buffer is collected, which blocks replacing it on Windows
+                long length = channel.size();
+                if (length > Integer.MAX_VALUE) {
+                    return null;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate((int) length);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Keep reading until the whole file is in
+                }
+                buffer.flip();
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    return null;
+                }
+
+                int count = buffer.getInt();
+                if (count != sources.length) {
+                    return null;
+                }
+
+                Map<String, Entry> entries = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    Entry entry = new Entry(readString(buffer), buffer.getLong(), buffer.getLong(),
+                            readString(buffer), readString(buffer), buffer.getInt());
+                    entries.put(entry.fileName, entry);
+                }
+
+                for (File source : sources) {
+                    Entry entry = entries.get(source.getName());
+                    if (entry == null || entry.size != source.length() || entry.modified != source.lastModified()) {
+                        return null;
+                    }
+                }
+
+                // Offsets are relative to the end of the entry table
+                ByteBuffer data = buffer.slice();
+                Map<String, Entry> byLanguage = new HashMap<>();
+                for (Entry entry : entries.values()) {
+                    if (entry.langCode != null) {
+                        byLanguage.put(entry.langCode, entry);
+                    }
+                }
+                LanguageBundle bundle = new LanguageBundle(data, byLanguage);
+                Log.info("Using language bundle " + bundleFile.getName());
+                return bundle;
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+                Log.warn("Ignoring language bundle " + bundleFile.getName() + ": " + e);
+                return null;
+            }
+        }
+
+        /**
+         * Decode one language from the bundle
+         */
+        Language read(String langCode) throws IOException {
+            Entry entry = entries.get(langCode);
+            if (entry == null) {
+                throw new IOException("Language not in bundle: " + langCode);
+            }
+
+            try {
+                ByteBuffer data = buffer.duplicate();
+                data.position(entry.offset);
+                int count = data.getInt();
+                Language.Builder language = new Language.Builder();
+                for (int i = 0; i < count; i++) {
+                    language.put(readString(data), readString(data));
+                }
+                return language.build();
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupt language bundle entry: " + langCode, e);
+            }
+        }
+
+        /**
+         * Parse every source file and write a new bundle, replacing the old one atomically
+         */
+        static void write(File bundleFile, File[] sources) {
+            try {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                DataOutputStream dataOut = new DataOutputStream(data);
+                ByteArrayOutputStream table = new ByteArrayOutputStream();
+                DataOutputStream tableOut = new DataOutputStream(table);
+
+                tableOut.writeInt(MAGIC);
+                tableOut.writeInt(VERSION);
+                tableOut.writeInt(sources.length);
+                for (File source : sources) {
+                    // Read size and time first so a concurrent edit leaves the bundle stale, not wrong
+                    long size = source.length();
+                    long modified = source.lastModified();
+                    String fileName = source.getName();
+                    String langCode = fileName.substring(0, fileName.lastIndexOf('.'));
+                    boolean valid = langCode.matches("^[a-z]{2}[_-][a-z]{2}$");
+
+                    writeString(tableOut, fileName);
+                    tableOut.writeLong(size);
+                    tableOut.writeLong(modified);
+                    writeString(tableOut, valid ? langCode : null);
+                    writeString(tableOut, valid ? LanguageCatalog.readDisplayName(source) : null);
+                    tableOut.writeInt(valid ? dataOut.size() : -1);
+
+                    if (valid) {
+                        Language language = parseLanguageFile(source);
+                        dataOut.writeInt(language.size());
+                        language.forEach((key, value) -> {
+                            try {
+                                writeString(dataOut, key);
+                                writeString(dataOut, value);
+                            } catch (IOException e) {
+                                // Only a ByteArrayOutputStream underneath
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                }
+
+                File dir = bundleFile.getParentFile();
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Cannot create " + dir);
+                }
+
+                File temp = File.createTempFile("languages", ".tmp", dir);
+                try (OutputStream out = new FileOutputStream(temp)) {
+                    table.writeTo(out);
+                    data.writeTo(out);
+                }
+                try {
+                    Files.move(temp.toPath(), bundleFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    temp.delete();
+                }
+                Log.info("Wrote language bundle " + bundleFile.getName());
+            } catch (IOException e) {
+                Log.error("Error writing language bundle: " + e.getMessage());
+            }
+        }
+
+        // Strings are a length followed by UTF-8 bytes, -1 for null
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Background image cache - decodes the file once and keeps a copy
+     * pre-scaled to the panel size, so painting is a single blit
+     */
+    static class BackgroundImageCache {
+        private BufferedImage source;
+        private Image scaled;
+        private int scaledWidth = -1;
+        private int scaledHeight = -1;
+        private double scaleX = 1;
+        private double scaleY = 1;
+        private volatile long hits;
+        private volatile long misses;
+
+        /**
+         * Replace the cached image with an already decoded one
+         */
+        void set(BufferedImage image) {
+            clear();
+            source = image;
+        }
+
+        /**
+         * Drop the decoded image and its scaled copy
+         */
+        void clear() {
+            if (scaled != null) {
+                scaled.flush();
+            }
+            if (source != null) {
+                source.flush();
+            }
+            source = null;
+            scaled = null;
+            scaledWidth = -1;
+            scaledHeight = -1;
+        }
+
+        /**
+         * Get the image scaled to the component size at device resolution, rescaling
+         * only when the size or the screen scale changed. Draw it at the component size
+         */
+        Image getScaled(Component c) {
+            int width = c.getWidth();
+            int height = c.getHeight();
+            if (source == null || width <= 0 || height <= 0) {
+                return null;
+            }
+
+            GraphicsConfiguration gc = c.getGraphicsConfiguration();
+            double sx = 1;
+            double sy = 1;
+            if (gc != null) {
+                AffineTransform transform = gc.getDefaultTransform();
+                sx = transform.getScaleX();
+                sy = transform.getScaleY();
+            }
+
+            if (scaled == null || width != scaledWidth || height != scaledHeight || sx != scaleX || sy != scaleY) {
+                if (scaled != null) {
+                    scaled.flush();
+                }
+                scaled = scale(source, (int) Math.ceil(width * sx), (int) Math.ceil(height * sy), gc);
+                scaledWidth = width;
+                scaledHeight = height;
+                scaleX = sx;
+                scaleY = sy;
+                misses++;
+            } else {
+                hits++;
+            }
+            return scaled;
+        }
+
+        /**
+         * Drop only the scaled copy, keeping the decoded image
+         */
+        void trim() {
+            if (scaled != null) {
+                scaled.flush();
+            }
+            scaled = null;
+            scaledWidth = -1;
+            scaledHeight = -1;
+        }
+
+        long hits() {
+            return hits;
+        }
+
+        long misses() {
+            return misses;
+        }
+
+        private static BufferedImage scale(BufferedImage src, int width, int height, GraphicsConfiguration gc) {
+            BufferedImage dst = gc != null ?
+                    gc.createCompatibleImage(width, height, src.getTransparency()) :
+                    new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+            Graphics2D g2d = dst.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(src, 0, 0, width, height, null);
+            g2d.dispose();
+            return dst;
+        }
+    }
+
+    /**
+     * Lock-free histogram of durations in nanoseconds. Buckets are powers of two
+     * split into 16 linear steps, so percentiles are accurate to about 6%
+     */
+    private static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            counts.incrementAndGet(bucketOf(nanos));
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+
+            long currentMax = max.get();
+            while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+                currentMax = max.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.set(0);
+            total.set(0);
+            max.set(0);
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long total() {
+            return total.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * Value at a percentile between 0 and 100, reported as the middle of its bucket
+         */
+        long percentile(double percentile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(max.get(), (lowerBound(i) + lowerBound(i + 1)) / 2);
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * One line summary in milliseconds
+         */
+        String summary() {
+            long n = count();
+            if (n == 0) {
+                return "no samples";
+            }
+            return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms",
+                    n, total() / (double) n / 1e6, percentile(50) / 1e6, percentile(99) / 1e6,
+                    percentile(99.9) / 1e6, max() / 1e6);
+        }
+
+        /**
+         * Write the non-empty buckets as "lowerNanos,upperNanos,count" lines
+         */
+        void writeTo(PrintWriter writer) {
+            writer.println("lower_ns,upper_ns,count");
+            for (int i = 0; i < BUCKETS; i++) {
+                long bucketCount = counts.get(i);
+                if (bucketCount > 0) {
+                    writer.println(lowerBound(i) + "," + lowerBound(i + 1) + "," + bucketCount);
+                }
+            }
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int subBucket = bucket % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        }
+    }
+
+    /**
+     * Paint timing per pad component. Off by default, costs one volatile read per paint when off
+     */
+    static final class PaintStats {
+        static final int MAIN_PANEL = 0;
+        static final int NUMPAD_BUTTON = 1;
+        static final int CONTROL_BUTTON = 2;
+        static final String[] NAMES = {"Main panel", "Numpad buttons", "Control buttons"};
+
+        private final LatencyHistogram[] histograms = new LatencyHistogram[NAMES.length];
+        private final AtomicLongArray paints = new AtomicLongArray(NAMES.length);
+        private volatile boolean enabled = Boolean.getBoolean("virtualnumpad.paintStats");
+
+        PaintStats() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        boolean isEnabled() {
+            return enabled;
+        }
+
+        void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        void end(int component, long start) {
+            paints.incrementAndGet(component);
+            if (start != 0) {
+                histograms[component].record(System.nanoTime() - start);
+            }
+        }
+
+        long count(int component) {
+            return histograms[component].count();
+        }
+
+        /**
+         * Paints since startup, counted even while timing is off
+         */
+        long paints(int component) {
+            return paints.get(component);
+        }
+
+        void reset() {
+            for (LatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+        }
+
+        /**
+         * Summary for the about dialog, empty when timing was never switched on
+         */
+        String toHtml() {
+            StringBuilder html = new StringBuilder();
+            for (int i = 0; i < histograms.length; i++) {
+                if (histograms[i].count() > 0) {
+                    html.append("<p>").append(NAMES[i]).append(" paint: ")
+                            .append(histograms[i].summary()).append("</p>");
+                }
+            }
+            return html.toString();
+        }
+    }
+
+    /**
+     * Immutable set of theme colors, built once per theme
+     */
+    static final class Palette {
+        static final Palette LIGHT = new Palette(false);
+        static final Palette DARK = new Palette(true);
+
+        final boolean dark;
+        final Color windowBackground;
+        final Color numpadBackground;
+        final Color statusText;
+        final Color modeText;
+        final Color buttonBorder;
+        final Color buttonText;
+
+        // Indexed by state, only read through fill() so they stay unmodified
+        private final Color[] controlFill;
+        private final Color[] numFill;
+        private final Color[] shortcutFill;
+
+        private Palette(boolean dark) {
+            this.dark = dark;
+            if (dark) {
+                windowBackground = Color.DARK_GRAY;
+                numpadBackground = new Color(40, 40, 40);
+                statusText = Color.WHITE;
+                modeText = Color.LIGHT_GRAY;
+                buttonBorder = Color.WHITE;
+                buttonText = Color.WHITE;
+                controlFill = fills(new Color(60, 60, 60, 200), new Color(80, 80, 80, 200), new Color(100, 100, 100, 200));
+                numFill = fills(new Color(40, 40, 40, 200), new Color(50, 50, 50, 200), new Color(30, 30, 30, 200));
+                shortcutFill = numFill;
+            } else {
+                windowBackground = new Color(240, 240, 240);
+                numpadBackground = new Color(240, 240, 240);
+                statusText = Color.BLACK;
+                modeText = Color.BLACK;
+                buttonBorder = Color.BLACK;
+                buttonText = Color.BLACK;
+                controlFill = fills(new Color(240, 240, 240, 200), new Color(220, 220, 220, 200), new Color(200, 200, 200, 200));
+                numFill = fills(new Color(200, 220, 240, 200), new Color(200, 200, 200, 200), new Color(180, 180, 180, 200));
+                shortcutFill = fills(new Color(240, 220, 200, 200), new Color(200, 200, 200, 200), new Color(180, 180, 180, 200));
+            }
+        }
+
+        private static Color[] fills(Color normal, Color rollover, Color armed) {
+            return new Color[] {normal, rollover, armed};
+        }
+
+        Color fill(int kind, boolean numMode, int state) {
+            if (kind == ButtonSkinCache.KIND_CONTROL) {
+                return controlFill[state];
+            }
+            return numMode ? numFill[state] : shortcutFill[state];
+        }
+    }
+
+    /**
+     * Pre-rendered rounded button backgrounds and borders, one image per
+     * (kind, theme, mode, state, frosted) combination at the current button size
+     */
+    static class ButtonSkinCache {
+        static final int KIND_CONTROL = 0;
+        static final int KIND_NUMPAD = 1;
+
+        static final int STATE_NORMAL = 0;
+        static final int STATE_ROLLOVER = 1;
+        static final int STATE_ARMED = 2;
+
+        static final AlphaComposite FROSTED = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.7f);
+        private static final BasicStroke BORDER_STROKE = new BasicStroke(1.5f);
+        private static final int ARC = 20;
+
+        // Indexed by kind, dark, num mode, state, frosted
+        private final BufferedImage[] skins = new BufferedImage[2 * 2 * 2 * 3 * 2];
+        // Device scale the skins were rendered for
+        private double scaleX = 1;
+        private double scaleY = 1;
+        private volatile long hits;
+        private volatile long misses;
+
+        static int stateOf(ButtonModel model) {
+            if (model.isArmed()) {
+                return STATE_ARMED;
+            }
+            return model.isRollover() ? STATE_ROLLOVER : STATE_NORMAL;
+        }
+
+        /**
+         * Get the skin for a button, rendering it only if missing or the button size changed.
+         * Skins are rendered at device resolution, draw them at the button's size
+         */
+        Image get(Component c, int kind, Palette palette, boolean numMode, int state, boolean frosted) {
+            // Control buttons look the same in both modes
+            if (kind == KIND_CONTROL) {
+                numMode = false;
+            }
+
+            int index = ((((kind * 2) + (palette.dark ? 1 : 0)) * 2 + (numMode ? 1 : 0)) * 3 + state) * 2 + (frosted ? 1 : 0);
+            int width = Math.max(1, c.getWidth());
+            int height = Math.max(1, c.getHeight());
+
+            GraphicsConfiguration gc = c.getGraphicsConfiguration();
+            double sx = 1;
+            double sy = 1;
+            if (gc != null) {
+                AffineTransform transform = gc.getDefaultTransform();
+                sx = transform.getScaleX();
+                sy = transform.getScaleY();
+            }
+            if (sx != scaleX || sy != scaleY) {
+                // Moved to a screen with another scale
+                invalidate();
+                scaleX = sx;
+                scaleY = sy;
+            }
+
+            BufferedImage skin = skins[index];
+            if (skin == null || skin.getWidth() != (int) Math.ceil(width * sx)
+                    || skin.getHeight() != (int) Math.ceil(height * sy)) {
+                if (skin != null) {
+                    skin.flush();
+                }
+                skin = render(gc, width, height, sx, sy,
+                        palette.fill(kind, numMode, state), palette.buttonBorder, frosted);
+                skins[index] = skin;
+                misses++;
+            } else {
+                hits++;
+            }
+            return skin;
+        }
+
+        long hits() {
+            return hits;
+        }
+
+        long misses() {
+            return misses;
+        }
+
+        /**
+         * Drop all skins, called when the theme changes
+         */
+        void invalidate() {
+            for (int i = 0; i < skins.length; i++) {
+                if (skins[i] != null) {
+                    skins[i].flush();
+                    skins[i] = null;
+                }
+            }
+        }
+
+        private static BufferedImage render(GraphicsConfiguration gc, int width, int height, double sx, double sy,
+                                            Color fill, Color border, boolean frosted) {
+            int pixelWidth = (int) Math.ceil(width * sx);
+            int pixelHeight = (int) Math.ceil(height * sy);
+            BufferedImage image = gc != null ?
+                    gc.createCompatibleImage(pixelWidth, pixelHeight, Transparency.TRANSLUCENT) :
+                    new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+
+            Graphics2D g2 = image.createGraphics();
+            g2.scale(sx, sy);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (frosted) {
+                g2.setComposite(FROSTED);
+            }
+
+            g2.setColor(fill);
+            g2.fillRoundRect(0, 0, width, height, ARC, ARC);
+
+            g2.setColor(border);
+            g2.setStroke(BORDER_STROKE);
+            g2.drawRoundRect(0, 0, width - 1, height - 1, ARC, ARC);
+
+            g2.dispose();
+            return image;
+        }
+    }
+
+    /**
+     * Rounded button UI shared by every pad and control button. Painting is a
+     * skin blit plus a cached glyph layout and allocates nothing in steady state
+     */
+    static class PadButtonUI extends BasicButtonUI {
+        private static final int MAX_LABEL_LAYOUTS = 256;
+
+        private final ButtonSkinCache skins = new ButtonSkinCache();
+        private final Map<LabelKey, LabelLayout> labelLayouts = new HashMap<>();
+        private final PaintStats paintStats;
+        private Palette palette = Palette.LIGHT;
+        private boolean numMode = true;
+        private boolean frosted = false;
+
+        PadButtonUI(PaintStats paintStats) {
+            this.paintStats = paintStats;
+        }
+
+        void configure(Palette palette, boolean numMode, boolean frosted) {
+            this.palette = palette;
+            this.numMode = numMode;
+            this.frosted = frosted;
+        }
+
+        void invalidateSkins() {
+            skins.invalidate();
+        }
+
+        ButtonSkinCache skinCache() {
+            return skins;
+        }
+
+        /**
+         * Drop shaped labels, called when the language changes
+         */
+        void invalidateLabels() {
+            labelLayouts.clear();
+        }
+
+        /**
+         * Get the shaped label for a text, font and render context, shaping it on first use
+         */
+        LabelLayout labelLayout(String text, Font font, FontRenderContext frc) {
+            LabelKey key = new LabelKey(text, font, frc);
+            LabelLayout layout = labelLayouts.get(key);
+            if (layout == null) {
+                if (labelLayouts.size() >= MAX_LABEL_LAYOUTS) {
+                    labelLayouts.clear();
+                }
+                layout = new LabelLayout(text, font, frc);
+                labelLayouts.put(key, layout);
+            }
+            return layout;
+        }
+
+        @Override
+        public void installUI(JComponent c) {
+            super.installUI(c);
+            AbstractButton button = (AbstractButton) c;
+            button.setFocusable(false);
+            button.setContentAreaFilled(false);
+            button.setBorderPainted(false);
+            button.setOpaque(false);
+        }
+
+        @Override
+        public void update(Graphics g, JComponent c) {
+            // Buttons are never opaque, skip the background fill
+            paint(g, c);
+        }
+
+        @Override
+        public void paint(Graphics g, JComponent c) {
+            long start = paintStats.start();
+            PadButton button = (PadButton) c;
+            Graphics2D g2 = (Graphics2D) g;
+            Composite oldComposite = g2.getComposite();
+            Color oldColor = g2.getColor();
+            Font oldFont = g2.getFont();
+
+            // Antialiasing stays on: flipping it back would drop the cached render context every paint
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            // Paint pre-rendered background and border
+            g2.drawImage(skins.get(c, button.kind, palette, numMode,
+                    ButtonSkinCache.stateOf(button.getModel()), frosted), 0, 0, c.getWidth(), c.getHeight(), null);
+
+            if (frosted) {
+                g2.setComposite(ButtonSkinCache.FROSTED);
+            }
+
+            // Paint text from the cached glyph layout
+            String text = button.getText();
+            if (text != null && !text.isEmpty()) {
+                g2.setColor(palette.buttonText);
+                button.layoutLabel(this, g2.getFontRenderContext());
+                g2.drawGlyphVector(button.label.glyphs, button.textX, button.textY);
+            }
+
+            g2.setComposite(oldComposite);
+            g2.setColor(oldColor);
+            g2.setFont(oldFont);
+
+            paintStats.end(button.kind == ButtonSkinCache.KIND_NUMPAD ?
+                    PaintStats.NUMPAD_BUTTON : PaintStats.CONTROL_BUTTON, start);
+        }
+    }
+
+    /**
+     * Label shaped once into a glyph vector, with the metrics needed to center it
+     */
+    static final class LabelLayout {
+        final GlyphVector glyphs;
+        final float width;
+        final float height;
+        final float ascent;
+
+        LabelLayout(String text, Font font, FontRenderContext frc) {
+            glyphs = font.createGlyphVector(frc, text);
+            LineMetrics metrics = font.getLineMetrics(text, frc);
+            width = (float) glyphs.getLogicalBounds().getWidth();
+            height = metrics.getHeight();
+            ascent = metrics.getAscent();
+        }
+    }
+
+    /**
+     * Cache key for a shaped label
+     */
+    private static final class LabelKey {
+        final String text;
+        final Font font;
+        final FontRenderContext frc;
+
+        LabelKey(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LabelKey)) {
+                return false;
+            }
+            LabelKey other = (LabelKey) o;
+            return text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+        }
+
+        @Override
+        public int hashCode() {
+            return (text.hashCode() * 31 + font.hashCode()) * 31 + frc.hashCode();
+        }
+    }
+
+    /**
+     * Pad button painted by the shared PadButtonUI, keeps its shaped and centered label
+     */
+    static class PadButton extends JButton {
+        private static final long serialVersionUID = 1L;
+
+        final int kind;
+
+        // Shaped label and its position, valid for the text, font, render context and size below
+        LabelLayout label;
+        float textX;
+        float textY;
+        private String labelText;
+        private Font labelFont;
+        private FontRenderContext labelFrc;
+        private int labelWidth = -1;
+        private int labelHeight = -1;
+        private boolean relabeling;
+
+        PadButton(int kind, PadButtonUI ui) {
+            this.kind = kind;
+            setUI(ui);
+        }
+
+        @Override
+        public void updateUI() {
+            // Keep the shared UI across look and feel changes
+            if (getUI() instanceof PadButtonUI) {
+                setUI(getUI());
+            } else {
+                super.updateUI();
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            // The shared UI restores what it changes, so no scratch graphics copy is needed
+            if (ui != null) {
+                ui.update(g, this);
+            }
+        }
+
+        @Override
+        public void setText(String text) {
+            if (isPreferredSizeSet()) {
+                // With a fixed preferred size a new label never changes the layout
+                relabeling = true;
+                try {
+                    super.setText(text);
+                } finally {
+                    relabeling = false;
+                }
+            } else {
+                super.setText(text);
+            }
+        }
+
+        @Override
+        public void setFont(Font font) {
+            if (isPreferredSizeSet()) {
+                relabeling = true;
+                try {
+                    super.setFont(font);
+                } finally {
+                    relabeling = false;
+                }
+            } else {
+                super.setFont(font);
+            }
+        }
+
+        @Override
+        public void revalidate() {
+            // Both setters repaint on their own
+            if (!relabeling) {
+                super.revalidate();
+            }
+        }
+
+        /**
+         * Shape and center the label, only when text, font, render context or size changed.
+         * The label is shaped once per text, font and render context and shared between buttons
+         */
+        void layoutLabel(PadButtonUI ui, FontRenderContext frc) {
+            String text = getText();
+            Font font = getFont();
+            int width = getWidth();
+            int height = getHeight();
+
+            if (text != labelText || font != labelFont || (frc != labelFrc && !frc.equals(labelFrc))) {
+                label = ui.labelLayout(text, font, frc);
+                labelText = text;
+                labelFont = font;
+                labelFrc = frc;
+                labelWidth = -1;
+            }
+
+            if (width != labelWidth || height != labelHeight) {
+                textX = (int) ((width - label.width) / 2);
+                textY = (int) ((height - label.height) / 2) + label.ascent;
+                labelWidth = width;
+                labelHeight = height;
+            }
+        }
+    }
+
+    /**
+     * Decodes a background image on a worker thread. The decode can be
+     * cancelled and is subsampled down to the screen size for large photos.
+     * The reader is only touched by the worker: it polls for cancellation
+     * from the decoder's progress callbacks and aborts itself
+     */
+    private class BackgroundImageLoader extends SwingWorker<BufferedImage, Void> implements IIOReadProgressListener {
+        private final File file;
+        private final boolean userSelected;
+        private final Dimension maxSize;
+
+        BackgroundImageLoader(File file, boolean userSelected) {
+            this.file = file;
+            this.userSelected = userSelected;
+
+            // Never decode more pixels than the screen can show
+            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+            this.maxSize = new Dimension(Math.max(screen.width, getWidth()), Math.max(screen.height, getHeight()));
+        }
+
+        @Override
+        protected BufferedImage doInBackground() throws Exception {
+            try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+                if (input == null) {
+                    throw new IOException("Cannot open image: " + file.getName());
+                }
+
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+                if (!readers.hasNext()) {
+                    throw new IOException("Unsupported image format: " + file.getName());
+                }
+
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(input, true, true);
+                    reader.addIIOReadProgressListener(this);
+                    if (isCancelled()) {
+                        return null;
+                    }
+
+                    int subsample = Math.max(1, Math.min(
+                            reader.getWidth(0) / maxSize.width,
+                            reader.getHeight(0) / maxSize.height));
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsample, subsample, 0, 0);
+
+                    BufferedImage image = reader.read(0, param);
+                    return isCancelled() ? null : image;
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+
+        /**
+         * Stop the decoder from its own thread once the worker was cancelled
+         */
+        private void abortIfCancelled(ImageReader source) {
+            if (isCancelled()) {
+                source.abort();
+            }
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+            abortIfCancelled(source);
+        }
+
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            abortIfCancelled(source);
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                backgroundImageLoaded(this);
+            }
+        }
+    }
+
+    /**
+     * One pad button: its label and the macro it injects, resolved when the layout is compiled
+     */
+    static class KeyBinding {
+        final String id;
+        final int labelId;
+        final KeyMacro macro;
+        final Runnable command;
+
+        KeyBinding(String id, int labelId, KeyMacro macro, Runnable command) {
+            this.id = id;
+            this.labelId = labelId;
+            this.macro = macro;
+            this.command = command;
+        }
+    }
+
+    /**
+     * Compiled button grid, indexed row by row
+     */
+    static class KeyLayout {
+        static final String FILE_SUFFIX = ".layout";
+        private static final String OPTION_REPEAT = "@repeat=";
+        private static final String OPTION_TRANSLATE = "@translate=";
+
+        final int rows;
+        final int columns;
+        final boolean repeatable;
+        final KeyBinding[] bindings;
+
+        private KeyLayout(int rows, int columns, boolean repeatable, KeyBinding[] bindings) {
+            this.rows = rows;
+            this.columns = columns;
+            this.repeatable = repeatable;
+            this.bindings = bindings;
+        }
+
+        /**
+         * Read and compile layouts/<name>.layout. Each line is a row of keys
+         * separated by "|", "@repeat=" and "@translate=" lines set the options
+         * and "#" starts a comment
+         */
+        static KeyLayout load(String name, Map<String, Runnable> commands, int keyDelay, int stepDelay) throws IOException {
+            if (!name.matches("^[A-Za-z0-9_-]+$")) {
+                throw new IllegalArgumentException("Invalid layout name: " + name);
+            }
+            URL source = layoutResource(name);
+            if (source == null) {
+                throw new FileNotFoundException(LAYOUTS_DIR + "/" + name + FILE_SUFFIX);
+            }
+
+            List<String[]> rows = new ArrayList<>();
+            boolean repeatable = false;
+            boolean translateLabels = false;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(source.openStream(), "UTF-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    if (line.startsWith(OPTION_REPEAT)) {
+                        repeatable = Boolean.parseBoolean(line.substring(OPTION_REPEAT.length()).trim());
+                    } else if (line.startsWith(OPTION_TRANSLATE)) {
+                        translateLabels = Boolean.parseBoolean(line.substring(OPTION_TRANSLATE.length()).trim());
+                    } else {
+                        String[] keys = line.split("\\|");
+                        for (int i = 0; i < keys.length; i++) {
+                            keys[i] = keys[i].trim();
+                        }
+                        rows.add(keys);
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                throw new IllegalArgumentException("Layout " + name + " has no keys");
+            }
+
+            KeyLayout layout = compile(rows.toArray(new String[0][]), translateLabels, repeatable, commands, keyDelay, stepDelay);
+            Log.info("Loaded layout " + name + " from " + source);
+            return layout;
+        }
+
+        /**
+         * Compile "ID" or "ID=macro" entries, translated labels use the "button.id" key
+         */
+        static KeyLayout compile(String[][] spec, boolean translateLabels, boolean repeatable,
+                                 Map<String, Runnable> commands, int keyDelay, int stepDelay) {
+            int rows = spec.length;
+            int columns = spec[0].length;
+            KeyBinding[] bindings = new KeyBinding[rows * columns];
+
+            for (int i = 0; i < rows; i++) {
+                if (spec[i].length != columns) {
+                    throw new IllegalArgumentException("Layout row " + i + " has " + spec[i].length + " keys, expected " + columns);
+                }
+                for (int j = 0; j < columns; j++) {
+                    String entry = spec[i][j];
+                    // Search from 1 so "=" itself can be an id
+                    int split = entry.indexOf('=', 1);
+                    String id = split > 0 ? entry.substring(0, split) : entry;
+                    KeyMacro macro = split > 0 ? KeyMacro.compile(entry.substring(split + 1), keyDelay, stepDelay) : null;
+                    int labelId = translateLabels ? TranslationKeys.intern("button." + id.toLowerCase()) : -1;
+
+                    bindings[i * columns + j] = new KeyBinding(id, labelId, macro, commands.get(id));
+                }
+            }
+            return new KeyLayout(rows, columns, repeatable, bindings);
+        }
+    }
+
+    /**
+     * Precompiled key sequence. The spec is a comma separated list of chords in
+     * KeyStroke syntax ("ctrl C", "NUMPAD7", "1") or "wait:N" for an extra delay
+     * of N milliseconds. "menu" stands for the platform shortcut modifier
+     */
+    static class KeyMacro {
+        static final int OP_PRESS = 0;
+        static final int OP_RELEASE = 1;
+        static final int OP_DELAY = 2;
+
+        private static final String WAIT_PREFIX = "wait:";
+
+        private static final String MENU_MODIFIER =
+                System.getProperty("os.name", "").toLowerCase().contains("mac") ? "meta" : "ctrl";
+
+        // Pairs of (op, argument)
+        final int[] ops;
+
+        private KeyMacro(int[] ops) {
+            this.ops = ops;
+        }
+
+        /**
+         * Compile a macro spec, keyDelay goes between key events of a chord and stepDelay between chords
+         */
+        static KeyMacro compile(String spec, int keyDelay, int stepDelay) {
+            List<Integer> ops = new ArrayList<>();
+            boolean previousWasChord = false;
+
+            for (String step : spec.split(",")) {
+                step = step.trim();
+                if (step.isEmpty()) {
+                    continue;
+                }
+
+                if (step.startsWith(WAIT_PREFIX)) {
+                    addOp(ops, OP_DELAY, parseDelay(step));
+                    previousWasChord = false;
+                    continue;
+                }
+
+                if (previousWasChord && stepDelay > 0) {
+                    addOp(ops, OP_DELAY, stepDelay);
+                }
+
+                int[] chord = parseChord(step);
+                for (int i = 0; i < chord.length; i++) {
+                    if (i > 0 && keyDelay > 0) {
+                        addOp(ops, OP_DELAY, keyDelay);
+                    }
+                    addOp(ops, OP_PRESS, chord[i]);
+                }
+                for (int i = chord.length - 1; i >= 0; i--) {
+                    if (keyDelay > 0) {
+                        addOp(ops, OP_DELAY, keyDelay);
+                    }
+                    addOp(ops, OP_RELEASE, chord[i]);
+                }
+                previousWasChord = true;
+            }
+
+            if (ops.isEmpty()) {
+                throw new IllegalArgumentException("Empty macro: " + spec);
+            }
+
+            int[] result = new int[ops.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ops.get(i);
+            }
+            return new KeyMacro(result);
+        }
+
+        private static void addOp(List<Integer> ops, int op, int argument) {
+            ops.add(op);
+            ops.add(argument);
+        }
+
+        /**
+         * Parse "wait:N" into N milliseconds
+         */
+        private static int parseDelay(String step) {
+            try {
+                int millis = Integer.parseInt(step.substring(WAIT_PREFIX.length()).trim());
+                if (millis >= 0) {
+                    return millis;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Invalid delay: " + step);
+        }
+
+        /**
+         * Parse one chord such as "NUMPAD7" or "ctrl C" into modifiers followed by the key
+         */
+        static int[] parseChord(String chordSpec) {
+            String normalized = (" " + chordSpec + " ").replace(" menu ", " " + MENU_MODIFIER + " ").trim();
+            KeyStroke stroke = KeyStroke.getKeyStroke(normalized);
+            if (stroke == null || stroke.getKeyCode() == KeyEvent.VK_UNDEFINED) {
+                throw new IllegalArgumentException("Invalid key: " + chordSpec);
+            }
+
+            List<Integer> codes = new ArrayList<>();
+            int modifiers = stroke.getModifiers();
+            if ((modifiers & InputEvent.CTRL_DOWN_MASK) != 0) codes.add(KeyEvent.VK_CONTROL);
+            if ((modifiers & InputEvent.SHIFT_DOWN_MASK) != 0) codes.add(KeyEvent.VK_SHIFT);
+            if ((modifiers & InputEvent.ALT_DOWN_MASK) != 0) codes.add(KeyEvent.VK_ALT);
+            if ((modifiers & InputEvent.ALT_GRAPH_DOWN_MASK) != 0) codes.add(KeyEvent.VK_ALT_GRAPH);
+            if ((modifiers & InputEvent.META_DOWN_MASK) != 0) codes.add(KeyEvent.VK_META);
+            codes.add(stroke.getKeyCode());
+
+            int[] result = new int[codes.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = codes.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Destination of injected key events
+     */
+    interface KeySink {
+        void keyPress(int keyCode);
+
+        void keyRelease(int keyCode);
+
+        void delay(int millis);
+    }
+
+    /**
+     * Key sink that sends native events through a Robot
+     */
+    private static final class RobotKeySink implements KeySink {
+        private final Robot robot;
+
+        RobotKeySink(Robot robot) {
+            this.robot = robot;
+        }
+
+        @Override
+        public void keyPress(int keyCode) {
+            robot.keyPress(keyCode);
+        }
+
+        @Override
+        public void keyRelease(int keyCode) {
+            robot.keyRelease(keyCode);
+        }
+
+        @Override
+        public void delay(int millis) {
+            robot.delay(millis);
+        }
+    }
+
+    /**
+     * Injects keystrokes from one dedicated thread that owns a long-lived Robot.
+     * Clicks are queued in order so the EDT returns immediately
+     */
+    static class KeyInjector {
+        private static final int QUEUE_CAPACITY = 64;
+
+        private final BlockingQueue<Injection> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean available = true;
+        private volatile boolean playing = false;
+
+        // Time from the click to the last key event of its macro
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        // Key presses sent, by key code
+        private final Map<Integer, AtomicLong> pressCounts = new ConcurrentHashMap<>();
+
+        // Macros rejected because the queue was full
+        private final AtomicLong dropped = new AtomicLong();
+
+        private static final class Injection {
+            final KeyMacro macro;
+            final long startNanos;
+            final LatencyHistogram latency;
+
+            Injection(KeyMacro macro, long startNanos, LatencyHistogram latency) {
+                this.macro = macro;
+                this.startNanos = startNanos;
+                this.latency = latency;
+            }
+        }
+
+        KeyInjector() {
+            Thread thread = new Thread(this::run, "VirtualNumpad-KeyInjector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Queue a macro, it is played as one batch without interleaving other macros.
+         * Never blocks, when the injector falls behind the macro is dropped and counted
+         */
+        boolean submit(KeyMacro macro) {
+            return submit(macro, System.nanoTime());
+        }
+
+        /**
+         * Queue a macro whose latency is measured from the given System.nanoTime() value
+         */
+        boolean submit(KeyMacro macro, long startNanos) {
+            return submit(macro, startNanos, latency);
+        }
+
+        /**
+         * Queue a macro whose latency goes into the given histogram instead of the click latency
+         */
+        boolean submit(KeyMacro macro, long startNanos, LatencyHistogram histogram) {
+            if (!available) {
+                return false;
+            }
+
+            if (queue.offer(new Injection(macro, startNanos, histogram))) {
+                return true;
+            }
+            if (dropped.getAndIncrement() == 0) {
+                Log.warn("Key injection queue is full, dropping keystrokes");
+            }
+            return false;
+        }
+
+        /**
+         * Macros dropped so far because the queue was full
+         */
+        long dropped() {
+            return dropped.get();
+        }
+
+        private void countPresses(int[] ops) {
+            for (int i = 0; i < ops.length; i += 2) {
+                if (ops[i] == KeyMacro.OP_PRESS) {
+                    pressCounts.computeIfAbsent(ops[i + 1], k -> new AtomicLong()).incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Key presses sent so far, keyed by key name
+         */
+        Map<String, Long> pressCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (Map.Entry<Integer, AtomicLong> entry : pressCounts.entrySet()) {
+                counts.put(KeyEvent.getKeyText(entry.getKey()), entry.getValue().get());
+            }
+            return counts;
+        }
+
+        /**
+         * Number of macros queued or playing
+         */
+        int backlog() {
+            return queue.size() + (playing ? 1 : 0);
+        }
+
+        private void run() {
+            KeySink sink;
+            try {
+                sink = new RobotKeySink(new Robot());
+            } catch (AWTException | SecurityException e) {
+                Log.error("Error creating key injector: " + e.getMessage());
+                available = false;
+                queue.clear();
+                return;
+            }
+
+            while (true) {
+                Injection injection;
+                try {
+                    injection = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                playing = true;
+                play(sink, injection.macro.ops);
+                long elapsed = System.nanoTime() - injection.startNanos;
+                injection.latency.record(elapsed);
+                if (Log.isDebugEnabled()) {
+                    Log.debug("Injected " + injection.macro.ops.length / 2 + " key ops in " + elapsed / 1000 + " us");
+                }
+                countPresses(injection.macro.ops);
+                playing = false;
+            }
+        }
+
+        /**
+         * Play macro ops, releasing anything still held if a key is rejected
+         */
+        static void play(KeySink sink, int[] ops) {
+            int[] held = new int[ops.length / 2];
+            int heldCount = 0;
+
+            try {
+                for (int i = 0; i < ops.length; i += 2) {
+                    int argument = ops[i + 1];
+                    switch (ops[i]) {
+                        case KeyMacro.OP_PRESS:
+                            sink.keyPress(argument);
+                            held[heldCount++] = argument;
+                            break;
+                        case KeyMacro.OP_RELEASE:
+                            sink.keyRelease(argument);
+                            heldCount = forget(held, heldCount, argument);
+                            break;
+                        case KeyMacro.OP_DELAY:
+                            sink.delay(argument);
+                            break;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                Log.error("Error simulating key press: " + e.getMessage());
+                for (int i = heldCount - 1; i >= 0; i--) {
+                    sink.keyRelease(held[i]);
+                }
+            }
+        }
+
+        private static int forget(int[] held, int heldCount, int keyCode) {
+            for (int i = heldCount - 1; i >= 0; i--) {
+                if (held[i] == keyCode) {
+                    System.arraycopy(held, i + 1, held, i, heldCount - i - 1);
+                    return heldCount - 1;
+                }
+            }
+            return heldCount;
+        }
+    }
+
+    /**
+     * Watches the languages directory. Changed files are collected until
+     * events stop for a moment, parsed on the scheduler and handed to the EDT
+     * as one batch
+     */
+    private class LanguageWatcher {
+        private static final long DEBOUNCE_MS = 300;
+
+        private final Set<String> changed = new HashSet<>();
+        private boolean overflowed;
+        private ScheduledFuture<?> reparseTask;
+        private File dir;
+
+        void start(File dir) {
+            this.dir = dir;
+            WatchService watchService;
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                dir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (IOException | UnsupportedOperationException e) {
+                Log.warn("Language hot reload unavailable: " + e.getMessage());
+                return;
+            }
+
+            Thread thread = new Thread(() -> watch(watchService), "VirtualNumpad-LanguageWatcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void watch(WatchService watchService) {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+
+                synchronized (this) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflowed = true;
+                        } else {
+                            String name = event.context().toString();
+                            if (name.toLowerCase().endsWith(".txt")) {
+                                changed.add(name);
+                            }
+                        }
+                    }
+
+                    // Restart the quiet period on every burst
+                    if (overflowed || !changed.isEmpty()) {
+                        if (reparseTask != null) {
+                            reparseTask.cancel(false);
+                        }
+                        reparseTask = scheduler.schedule(this::reparse, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                    }
+                }
+
+                if (!key.reset()) {
+                    Log.warn("Language folder is no longer watched: " + dir.getAbsolutePath());
+                    return;
+                }
+            }
+        }
+
+        private void reparse() {
+            List<String> names;
+            boolean reloadAll;
+            synchronized (this) {
+                names = new ArrayList<>(changed);
+                reloadAll = overflowed;
+                changed.clear();
+                overflowed = false;
+                reparseTask = null;
+            }
+
+            // Events were lost, fall back to a full refresh
+            if (reloadAll) {
+                SwingUtilities.invokeLater(VirtualNumpad.this::reloadLanguages);
+                return;
+            }
+
+            Map<String, ParsedLanguage> changes = new HashMap<>();
+            for (String name : names) {
+                String langCode = name.substring(0, name.lastIndexOf('.'));
+                if (!langCode.matches("^[a-z]{2}[_-][a-z]{2}$")) {
+                    continue;
+                }
+
+                File file = new File(dir, name);
+                if (!file.isFile()) {
+                    changes.put(langCode, null);
+                    continue;
+                }
+
+                try {
+                    Language translations = parseLanguageFile(file);
+                    if (translations.isEmpty()) {
+                        // An emptied file no longer provides translations, drop the old ones
+                        changes.put(langCode, null);
+                    } else {
+                        changes.put(langCode, new ParsedLanguage(file, LanguageCatalog.readDisplayName(file), translations));
+                    }
+                } catch (IOException e) {
+                    // Usually a save in progress, the next event retries
+                    Log.error("Error reloading language file: " + name + ": " + e.getMessage());
+                }
+            }
+
+            if (!changes.isEmpty()) {
+                SwingUtilities.invokeLater(() -> applyLanguageChanges(changes));
+            }
+        }
+    }
+
+    /**
+     * Leveled logger. Callers only publish an entry into a lock-free ring
+     * buffer, a daemon thread writes the entries to the console, and the
+     * newest ones stay readable for the diagnostics view. Debug calls are
+     * dropped by a single volatile read unless -Dvirtualnumpad.debug=true
+     */
+    static final class Log {
+        private static final int DEBUG = 0;
+        private static final int INFO = 1;
+        private static final int WARN = 2;
+        private static final int ERROR = 3;
+        private static final String[] LEVEL_NAMES = {"DEBUG", "INFO", "WARN", "ERROR"};
+
+        // Power of two so a sequence number maps to a slot with a mask
+        private static final int CAPACITY = 1024;
+        private static final long DRAIN_INTERVAL_NANOS = 20_000_000L;
+        private static final DateTimeFormatter TIME =
+                DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+        private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+        private static final AtomicLong next = new AtomicLong();
+        private static volatile int threshold = Boolean.getBoolean("virtualnumpad.debug") ? DEBUG : INFO;
+        private static long drained; // drainer thread only
+        private static long dropped; // drainer thread only
+
+        private static final class Entry {
+            final long sequence;
+            final long time;
+            final int level;
+            final String thread;
+            final String message;
+            final Throwable error;
+
+            Entry(long sequence, int level, String message, Throwable error) {
+                this.sequence = sequence;
+                this.time = System.currentTimeMillis();
+                this.level = level;
+                this.thread = Thread.currentThread().getName();
+                this.message = message;
+                this.error = error;
+            }
+
+            String format() {
+                return TIME.format(Instant.ofEpochMilli(time)) + " " + LEVEL_NAMES[level] +
+                        " [" + thread + "] " + message + (error != null ? ": " + error : "");
+            }
+        }
+
+        static {
+            Thread drainer = new Thread(Log::drainLoop, "VirtualNumpad-Log");
+            drainer.setDaemon(true);
+            drainer.start();
+
+            // Write whatever is still queued when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(Log::drain, "VirtualNumpad-LogFlush"));
+        }
+
+        static boolean isDebugEnabled() {
+            return threshold <= DEBUG;
+        }
+
+        static void setDebugEnabled(boolean enabled) {
+            threshold = enabled ? DEBUG : INFO;
+        }
+
+        /**
+         * Drop debug and info entries, warnings and errors are still written
+         */
+        static void setInfoEnabled(boolean enabled) {
+            threshold = enabled ? INFO : WARN;
+        }
+
+        static void debug(String message) {
+            if (threshold <= DEBUG) {
+                append(DEBUG, message, null);
+            }
+        }
+
+        static void info(String message) {
+            if (threshold <= INFO) {
+                append(INFO, message, null);
+            }
+        }
+
+        static void warn(String message) {
+            append(WARN, message, null);
+        }
+
+        static void error(String message) {
+            append(ERROR, message, null);
+        }
+
+        static void error(String message, Throwable error) {
+            append(ERROR, message, error);
+        }
+
+        private static void append(int level, String message, Throwable error) {
+            long sequence = next.getAndIncrement();
+            ring.set((int) (sequence & (CAPACITY - 1)), new Entry(sequence, level, message, error));
+        }
+
+        /**
+         * The newest entries still in the buffer, oldest first
+         */
+        static String recent() {
+            long end = next.get();
+            StringBuilder text = new StringBuilder();
+            for (long sequence = Math.max(0, end - CAPACITY); sequence < end; sequence++) {
+                Entry entry = ring.get((int) (sequence & (CAPACITY - 1)));
+                if (entry != null && entry.sequence == sequence) {
+                    text.append(entry.format()).append('\n');
+                }
+            }
+            return text.toString();
+        }
+
+        private static void drainLoop() {
+            while (true) {
+                drain();
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            }
+        }
+
+        /**
+         * Write entries published since the last drain, noting any the writers lapped
+         */
+        private static synchronized void drain() {
+            long end = next.get();
+            if (end - drained > CAPACITY) {
+                // Everything older than one lap has been overwritten
+                dropped += end - CAPACITY - drained;
+                drained = end - CAPACITY;
+            }
+            while (drained < end) {
+                Entry entry = ring.get((int) (drained & (CAPACITY - 1)));
+                if (entry == null || entry.sequence < drained) {
+                    // Claimed but not published yet, pick it up next time
+                    return;
+                }
+                if (entry.sequence > drained) {
+                    // Overwritten by a writer that lapped since end was read
+                    dropped++;
+                    drained++;
+                    continue;
+                }
+                reportDropped();
+
+                PrintStream stream = entry.level >= WARN ? System.err : System.out;
+                stream.println(entry.format());
+                if (entry.error != null) {
+                    entry.error.printStackTrace(stream);
+                }
+                drained++;
+            }
+            reportDropped();
+        }
+
+        private static void reportDropped() {
+            if (dropped > 0) {
+                System.err.println("Log: " + dropped + " entries dropped");
+                dropped = 0;
+            }
+        }
+    }
+
+    /**
+     * Times the startup phases relative to the start of the constructor
+     */
+    private static final class StartupTimer {
+        private final long origin = System.nanoTime();
+        private final long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        private final List<String> lines = new ArrayList<>();
+
+        void phase(String name, Runnable phase) {
+            long start = System.nanoTime();
+            try {
+                phase.run();
+            } finally {
+                record(name, start, System.nanoTime());
+            }
+        }
+
+        void mark(String name) {
+            long now = System.nanoTime();
+            record(name, now, now);
+        }
+
+        private void record(String name, long start, long end) {
+            String line = String.format(Locale.ROOT, "%-18s %-28s at %8.1f ms  took %8.1f ms",
+                    name, Thread.currentThread().getName(), (start - origin) / 1e6, (end - start) / 1e6);
+            synchronized (this) {
+                lines.add(line);
+            }
+            Log.info("Startup: " + line);
+        }
+
+        synchronized String report() {
+            StringBuilder report = new StringBuilder();
+            report.append("JVM uptime before constructor: ").append(jvmUptimeMillis).append(" ms\n");
+            for (String line : lines) {
+                report.append(line).append('\n');
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * Write-behind for preferences. Bursts of changes collapse into one write
+     * after a quiet period, and a snapshot equal to the stored one is never written
+     */
+    private class PreferenceWriter {
+        private static final long QUIET_PERIOD_MS = 500;
+
+        private final Object writeLock = new Object();
+        private Map<String, String> written = Collections.emptyMap();
+        private Map<String, String> pending;
+        private ScheduledFuture<?> flushTask;
+
+        synchronized void loaded(Map<String, String> snapshot) {
+            written = snapshot;
+        }
+
+        synchronized void schedule(Map<String, String> snapshot) {
+            if (snapshot.equals(pending != null ? pending : written)) {
+                return;
+            }
+
+            pending = snapshot;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+            }
+            flushTask = scheduler.schedule(this::flush, QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Write the pending snapshot now, does nothing when there is none
+         */
+        void flush() {
+            synchronized (writeLock) {
+                Map<String, String> snapshot;
+                Map<String, String> previous;
+                synchronized (this) {
+                    snapshot = pending;
+                    previous = written;
+                    pending = null;
+                    if (flushTask != null) {
+                        flushTask.cancel(false);
+                        flushTask = null;
+                    }
+                    if (snapshot == null || snapshot.equals(previous)) {
+                        return;
+                    }
+                    // Changes made while this write runs compare against what it stores
+                    written = snapshot;
+                }
+
+                // Only touch the keys that changed
+                for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                    if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                        prefs.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                for (String key : previous.keySet()) {
+                    if (!snapshot.containsKey(key)) {
+                        prefs.remove(key);
+                    }
+                }
+
+                try {
+                    prefs.flush();
+                    preferenceFlushes.incrementAndGet();
+                } catch (Exception e) {
+                    Log.error("Error saving preferences: " + e.getMessage());
+                    synchronized (this) {
+                        // The stored state is unknown now, so the retry writes every key
+                        written = Collections.emptyMap();
+                        schedule(pending != null ? pending : snapshot);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Notification overlay. One non-focusable window is reused for every
+     * message, rapid items with the same prefix are merged into one line,
+     * and a single timer fades it out
+     */
+    private class Toast {
+        private static final int HOLD_MS = 1200;
+        private static final int FADE_MS = 400;
+        private static final int TICK_MS = 40;
+        private static final int MAX_LENGTH = 60;
+        private static final int GAP = 6;
+
+        private JWindow window;
+        private JLabel label;
+        private Timer timer;
+        private boolean translucent;
+        private String prefix;
+        private String text = "";
+        private long shownAt;
+
+        /**
+         * Show a message on its own
+         */
+        void show(String message) {
+            prefix = null;
+            update(message);
+        }
+
+        /**
+         * Show "prefix: item", appending to the visible toast if it has the same prefix
+         */
+        void showItem(String itemPrefix, String item) {
+            if (window != null && window.isVisible() && itemPrefix.equals(prefix)) {
+                String merged = text + " " + item;
+                if (merged.length() > MAX_LENGTH) {
+                    // Keep the newest items
+                    merged = itemPrefix + ": \u2026" + merged.substring(merged.length() - MAX_LENGTH + itemPrefix.length() + 3);
+                }
+                update(merged);
+            } else {
+                prefix = itemPrefix;
+                update(itemPrefix + ": " + item);
+            }
+        }
+
+        private void update(String message) {
+            if (window == null) {
+                createWindow();
+            }
+
+            text = message;
+            label.setText(message);
+            window.pack();
+            position();
+            if (translucent) {
+                window.setOpacity(1f);
+            }
+            shownAt = System.currentTimeMillis();
+            if (!window.isVisible()) {
+                window.setVisible(true);
+            }
+            timer.start();
+        }
+
+        private void createWindow() {
+            window = new JWindow(VirtualNumpad.this);
+            window.setType(Window.Type.POPUP);
+            window.setFocusableWindowState(false);
+            window.setAutoRequestFocus(false);
+            window.setAlwaysOnTop(true);
+
+            label = new JLabel("", SwingConstants.CENTER);
+            label.setOpaque(true);
+            label.setBackground(new Color(40, 40, 40));
+            label.setForeground(Color.WHITE);
+            label.setFont(new Font("SansSerif", Font.BOLD, 13));
+            label.setBorder(new EmptyBorder(8, 16, 8, 16));
+            window.setContentPane(label);
+
+            translucent = window.getGraphicsConfiguration().getDevice()
+                    .isWindowTranslucencySupported(GraphicsDevice.WindowTranslucency.TRANSLUCENT);
+            timer = new Timer(TICK_MS, e -> tick());
+        }
+
+        /**
+         * Just below the pad, or above it when there is no room below, so the
+         * toast never covers keys. At the bottom of the screen when the pad is hidden
+         */
+        private void position() {
+            int width = window.getWidth();
+            int height = window.getHeight();
+
+            if (!VirtualNumpad.this.isShowing()) {
+                Rectangle screen = window.getGraphicsConfiguration().getBounds();
+                window.setLocation(screen.x + (screen.width - width) / 2,
+                        screen.y + screen.height - height - GAP * 8);
+                return;
+            }
+
+            Rectangle pad = VirtualNumpad.this.getBounds();
+            Rectangle screen = VirtualNumpad.this.getGraphicsConfiguration().getBounds();
+            int x = Math.max(screen.x, Math.min(pad.x + (pad.width - width) / 2, screen.x + screen.width - width));
+            int y = pad.y + pad.height + GAP;
+            if (y + height > screen.y + screen.height) {
+                y = pad.y - height - GAP;
+            }
+            if (y < screen.y) {
+                // No room above or below, go beside the pad
+                y = pad.y + (pad.height - height) / 2;
+                x = pad.x + pad.width + GAP;
+                if (x + width > screen.x + screen.width) {
+                    x = pad.x - width - GAP;
+                }
+            }
+            window.setLocation(x, y);
+        }
+
+        private void tick() {
+            long elapsed = System.currentTimeMillis() - shownAt;
+            if (elapsed >= HOLD_MS + FADE_MS) {
+                timer.stop();
+                window.setVisible(false);
+                prefix = null;
+            } else if (elapsed > HOLD_MS && translucent) {
+                window.setOpacity(1f - (elapsed - HOLD_MS) / (float) FADE_MS);
+            }
+        }
+    }
+
+    /**
+     * Measures real key arrival: injects keys into a small in-process window
+     * and times each one from submission until its release event is dispatched.
+     * Probes cycle through A-Z so a key arriving after its timeout is not
+     * taken for the next probe, and their injector timings are kept out of
+     * the click latency
+     */
+    private class LatencySelfTest {
+        private static final int SAMPLES = 200;
+        private static final long ARRIVAL_TIMEOUT_MS = 1000;
+        private static final int PROBE_KEYS = 26;
+
+        private final LatencyHistogram injected = new LatencyHistogram();
+        private final LatencyHistogram arrival = new LatencyHistogram();
+        private final KeyMacro[] probes = new KeyMacro[PROBE_KEYS];
+        private final Semaphore arrived = new Semaphore(0);
+        // Sequence number of the probe being waited for, -1 when none
+        private final AtomicInteger awaited = new AtomicInteger(-1);
+        private final AtomicInteger late = new AtomicInteger();
+        private final JFrame target = new JFrame("Latency Self-Test");
+        private volatile boolean focused;
+        private volatile long sentAt;
+
+        void start() {
+            for (int i = 0; i < PROBE_KEYS; i++) {
+                probes[i] = KeyMacro.compile(String.valueOf((char) ('A' + i)), 0, 0);
+            }
+
+            JTextArea textArea = new JTextArea("Keep this window focused while the test runs");
+            textArea.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyReleased(KeyEvent e) {
+                    int key = e.getKeyCode() - KeyEvent.VK_A;
+                    if (key < 0 || key >= PROBE_KEYS) {
+                        return;
+                    }
+                    int sequence = awaited.get();
+                    if (sequence >= 0 && sequence % PROBE_KEYS == key && awaited.compareAndSet(sequence, -1)) {
+                        arrival.record(System.nanoTime() - sentAt);
+                        arrived.release();
+                    } else {
+                        late.incrementAndGet();
+                    }
+                }
+            });
+            target.addWindowFocusListener(new WindowAdapter() {
+                @Override
+                public void windowGainedFocus(WindowEvent e) {
+                    focused = true;
+                }
+
+                @Override
+                public void windowLostFocus(WindowEvent e) {
+                    focused = false;
+                }
+            });
+            target.add(new JScrollPane(textArea));
+            target.setSize(360, 160);
+            target.setLocationRelativeTo(VirtualNumpad.this);
+            target.setVisible(true);
+            textArea.requestFocusInWindow();
+
+            Thread thread = new Thread(this::run, "VirtualNumpad-LatencySelfTest");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void run() {
+            String result;
+            try {
+                // Give the window manager time to focus the target
+                Thread.sleep(500);
+
+                int lost = 0;
+                for (int i = 0; i < SAMPLES; i++) {
+                    if (!focused) {
+                        throw new IllegalStateException("target window lost focus after " + i + " samples");
+                    }
+                    sentAt = System.nanoTime();
+                    awaited.set(i);
+                    if (!keyInjector.submit(probes[i % PROBE_KEYS], sentAt, injected)) {
+                        throw new IllegalStateException("key injector is not available");
+                    }
+                    if (!arrived.tryAcquire(ARRIVAL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        if (awaited.compareAndSet(i, -1)) {
+                            lost++;
+                        } else {
+                            // Arrived just as the wait timed out
+                            arrived.acquire();
+                        }
+                    }
+                }
+                result = "Submit to release arrival: " + arrival.summary() + "\n" +
+                        "Submit to last key event: " + injected.summary() + "\n" +
+                        "Lost keystrokes: " + lost + " of " + SAMPLES + "\n" +
+                        "Late or stray arrivals: " + late.get();
+            } catch (InterruptedException e) {
+                result = "Self-test interrupted";
+            } catch (IllegalStateException e) {
+                result = "Self-test aborted: " + e.getMessage();
+            }
+
+            String report = result;
+            SwingUtilities.invokeLater(() -> {
+                target.dispose();
+                showDiagnosticsText("Key Latency Self-Test", report);
+            });
+        }
+    }
+
+    /**
+     * Typematic repeat for a held pad button, driven by the shared scheduler.
+     * A repeat is skipped while the injector still has work, so the target
+     * never receives a burst of stale keystrokes after the button is released
+     */
+    private class AutoRepeat {
+        private ScheduledFuture<?> task;
+        private KeyMacro macro;
+        private boolean repeated;
+
+        /**
+         * Start repeating after the initial delay, called on the EDT when a button
+         * is pressed. When the mouse comes back onto the held button a key that
+         * already repeated resumes at the repeat rate
+         */
+        synchronized void start(KeyMacro macro) {
+            if (this.macro == macro) {
+                if (task != null) {
+                    // Still held, keep the running schedule
+                    return;
+                }
+            } else {
+                pause();
+                this.macro = macro;
+                repeated = false;
+            }
+            if (repeatRate <= 0) {
+                return;
+            }
+
+            long period = Math.max(1, 1_000_000L / repeatRate);
+            task = scheduler.scheduleAtFixedRate(this::tick, repeated ? period : repeatDelay * 1000L,
+                    period, TimeUnit.MICROSECONDS);
+        }
+
+        /**
+         * Stop repeating but remember the press, called on the EDT when the mouse leaves the held button
+         */
+        synchronized void pause() {
+            if (task != null) {
+                task.cancel(false);
+                task = null;
+            }
+        }
+
+        /**
+         * Stop repeating and forget the press, called on the EDT when the button is released
+         */
+        synchronized void stop() {
+            pause();
+            macro = null;
+            repeated = false;
+        }
+
+        /**
+         * Stop repeating and tell whether the held key already repeated.
+         * Called by the click, which Swing delivers before the release
+         */
+        synchronized boolean finish() {
+            boolean result = repeated;
+            stop();
+            return result;
+        }
+
+        private void tick() {
+            KeyMacro current;
+            synchronized (this) {
+                current = macro;
+                if (current == null || task == null) {
+                    return;
+                }
+                if (repeated && keyInjector.backlog() > 0) {
+                    // Injector is behind, coalesce this repeat
+                    return;
+                }
+                // The first repeat also stands in for the initial keystroke
+                repeated = true;
+            }
+            keyInjector.submit(current);
+        }
+    }
+
+    /**
+     * Management interface, registered as VirtualNumpad:type=Numpad
+     */
+    public interface NumpadMXBean {
+        boolean isAlwaysOnTop();
+
+        boolean isNumLockMode();
+
+        boolean isDarkMode();
+
+        String getLanguageCode();
+
+        String getBackgroundImagePath();
+
+        Map<String, Long> getKeyPresses();
+
+        int getKeyBacklog();
+
+        long getDroppedKeys();
+
+        String getKeyLatency();
+
+        String getStartupReport();
+
+        Map<String, Long> getPaintCounts();
+
+        long getPreferenceFlushes();
+
+        long getLanguageReloads();
+
+        long getBackgroundCacheHits();
+
+        long getBackgroundCacheMisses();
+
+        long getSkinCacheHits();
+
+        long getSkinCacheMisses();
+
+        void clearCaches();
+
+        void reloadLanguages();
+    }
+
+    /**
+     * Read-only view of the pad for JMX clients, operations are handed to the EDT
+     */
+    private class NumpadManagement implements NumpadMXBean {
+        @Override
+        public boolean isAlwaysOnTop() {
+            return isAlwaysOnTop;
+        }
+
+        @Override
+        public boolean isNumLockMode() {
+            return isNumLockMode;
+        }
+
+        @Override
+        public boolean isDarkMode() {
+            return isDarkMode;
+        }
+
+        @Override
+        public String getLanguageCode() {
+            return currentLangCode;
+        }
+
+        @Override
+        public String getBackgroundImagePath() {
+            return backgroundImagePath;
+        }
+
+        @Override
+        public Map<String, Long> getKeyPresses() {
+            return keyInjector.pressCounts();
+        }
+
+        @Override
+        public int getKeyBacklog() {
+            return keyInjector.backlog();
+        }
+
+        @Override
+        public long getDroppedKeys() {
+            return keyInjector.dropped();
+        }
+
+        @Override
+        public String getKeyLatency() {
+            return keyInjector.latency.summary();
+        }
+
+        @Override
+        public String getStartupReport() {
+            return startup.report();
+        }
+
+        @Override
+        public Map<String, Long> getPaintCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < PaintStats.NAMES.length; i++) {
+                counts.put(PaintStats.NAMES[i], paintStats.paints(i));
+            }
+            return counts;
+        }
+
+        @Override
+        public long getPreferenceFlushes() {
+            return preferenceFlushes.get();
+        }
+
+        @Override
+        public long getLanguageReloads() {
+            return languageReloads.get();
+        }
+
+        @Override
+        public long getBackgroundCacheHits() {
+            return backgroundCache.hits();
+        }
+
+        @Override
+        public long getBackgroundCacheMisses() {
+            return backgroundCache.misses();
+        }
+
+        @Override
+        public long getSkinCacheHits() {
+            return padButtonUI.skinCache().hits();
+        }
+
+        @Override
+        public long getSkinCacheMisses() {
+            return padButtonUI.skinCache().misses();
+        }
+
+        @Override
+        public void clearCaches() {
+            SwingUtilities.invokeLater(VirtualNumpad.this::clearCaches);
+        }
+
+        @Override
+        public void reloadLanguages() {
+            SwingUtilities.invokeLater(VirtualNumpad.this::reloadLanguages);
+        }
+    }
+
+    /**
+     * Main method
+     */
+    public static void main(String[] args) {
+        // Set UTF-8 as default encoding
+        System.setProperty("file.encoding", "UTF-8");
+
+        // Fast-start packaging: --training records a session, --startup-probe exits after the first frame
+        trainingRun = args.length > 0 && "--training".equals(args[0]);
+        startupProbe = args.length > 0 && "--startup-probe".equals(args[0]);
 
         SwingUtilities.invokeLater(() -> {
             try {
@@ -1673,7 +4984,7 @@ public class VirtualNumpad extends JFrame {
                 UIManager.put("MenuItem.font", new Font("SansSerif", Font.PLAIN, 12));
 
             } catch (Exception e) {
-                System.err.println("Error setting look and feel: " + e.getMessage());
+                Log.error("Error setting look and feel: " + e.getMessage());
             }
 
             new VirtualNumpad();
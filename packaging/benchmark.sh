@@ -0,0 +1,26 @@
+#!/bin/sh
+# Runs the microbenchmarks in bench/java against the app classes and writes
+# the results as CSV to build/bench/results.csv, or to the file given as the
+# first argument.
+#
+# Needs a JDK 17+ (JAVA_HOME or the one on PATH). The benchmarks run headless,
+# the benchmark classes are never packaged with the app.
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/build/bench"
+RESULTS=${1:-$OUT/results.csv}
+if [ -n "$JAVA_HOME" ]; then
+    JDK_BIN="$JAVA_HOME/bin/"
+else
+    JDK_BIN=""
+fi
+
+echo "== Compiling"
+rm -rf "$OUT/classes"
+mkdir -p "$OUT/classes"
+"${JDK_BIN}javac" -encoding UTF-8 -d "$OUT/classes" \
+    "$ROOT/main/java/VirtualNumpad.java" "$ROOT/bench/java/VirtualNumpadBenchmarks.java"
+
+echo "== Running"
+"${JDK_BIN}java" -cp "$OUT/classes:$ROOT/main/resources" VirtualNumpadBenchmarks "$RESULTS"
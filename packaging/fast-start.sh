@@ -0,0 +1,70 @@
+#!/bin/sh
+# Builds the fast-start distribution of VirtualNumpad:
+#   build/fast-start/runtime   trimmed runtime image made with jlink
+#   build/fast-start/app       the jar, languages, layouts, icon and an AppCDS archive
+#   build/fast-start/app/virtualnumpad.sh   launcher using both
+# and then compares its time to first frame against a plain `java -jar`.
+#
+# Needs a JDK 17+ (JAVA_HOME or the one on PATH) and a display, since the
+# archive is recorded from a training run of the real window.
+# Set RUNS to change the number of startup samples (default 5).
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/build/fast-start"
+RUNS=${RUNS:-5}
+if [ -n "$JAVA_HOME" ]; then
+    JDK_BIN="$JAVA_HOME/bin/"
+else
+    JDK_BIN=""
+fi
+
+echo "== Building jar"
+rm -rf "$OUT"
+mkdir -p "$OUT/classes" "$OUT/app"
+"${JDK_BIN}javac" -encoding UTF-8 -d "$OUT/classes" "$ROOT/main/java/VirtualNumpad.java"
+printf 'Main-Class: VirtualNumpad\n' > "$OUT/manifest.txt"
+"${JDK_BIN}jar" --create --file "$OUT/app/VirtualNumpad.jar" --manifest "$OUT/manifest.txt" -C "$OUT/classes" .
+cp -R "$ROOT/main/resources/languages" "$OUT/app/"
+cp -R "$ROOT/main/resources/layouts" "$OUT/app/"
+cp "$ROOT/main/resources/icon.ico" "$OUT/app/"
+
+echo "== Linking runtime"
+MODULES=$("${JDK_BIN}jdeps" --print-module-deps --ignore-missing-deps "$OUT/app/VirtualNumpad.jar")
+echo "Modules: $MODULES"
+"${JDK_BIN}jlink" --add-modules "$MODULES" \
+    --strip-debug --no-header-files --no-man-pages \
+    --output "$OUT/runtime"
+# Default CDS archive of the trimmed runtime, the base for the app archive
+"$OUT/runtime/bin/java" -Xshare:dump > /dev/null
+
+echo "== Training run"
+# The app reads languages/, layouts/ and icon.ico from the working directory
+(cd "$OUT/app" && "$OUT/runtime/bin/java" -XX:ArchiveClassesAtExit=VirtualNumpad.jsa \
+    -jar VirtualNumpad.jar --training)
+
+cat > "$OUT/app/virtualnumpad.sh" <<'LAUNCHER'
+#!/bin/sh
+cd "$(dirname "$0")" || exit 1
+exec ../runtime/bin/java -XX:SharedArchiveFile=VirtualNumpad.jsa -Xshare:auto -jar VirtualNumpad.jar "$@"
+LAUNCHER
+chmod +x "$OUT/app/virtualnumpad.sh"
+
+# Median of the first-frame times reported by --startup-probe
+measure() {
+    label=$1
+    shift
+    samples=""
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        ms=$(cd "$OUT/app" && "$@" --startup-probe | sed -n 's/^first-frame-ms=//p')
+        samples="$samples $ms"
+        i=$((i + 1))
+    done
+    median=$(echo "$samples" | tr ' ' '\n' | sed '/^$/d' | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+    echo "$label: median ${median} ms to first frame (samples:$samples)"
+}
+
+echo "== Startup comparison ($RUNS runs each)"
+measure "java -jar           " "${JDK_BIN}java" -jar VirtualNumpad.jar
+measure "jlink + AppCDS      " "$OUT/app/virtualnumpad.sh"
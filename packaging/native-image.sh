@@ -0,0 +1,72 @@
+#!/bin/sh
+# Builds VirtualNumpad as a GraalVM native executable in build/native and
+# compares its time to first frame and resident memory with the JVM build.
+#
+# Needs GraalVM for JDK 17+ with native-image (GRAALVM_HOME or JAVA_HOME) and
+# a display. Steps:
+#   1. run the pad on the JVM under the tracing agent for a scripted --training
+#      session, recording the reflection/JNI/resource metadata AWT, Swing,
+#      Preferences and ImageIO need into build/native/agent. The metadata in
+#      main/resources/META-INF/native-image only covers what the agent cannot
+#      see (the management bean, the packaged resources) and is not rewritten
+#   2. native-image with main/resources on the classpath, so languages/*.txt
+#      (listed in languages/languages.list), layouts/*.layout and icon.ico
+#      are built in
+#   3. --startup-probe on both builds, RUNS times each (default 5)
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/build/native"
+RUNS=${RUNS:-5}
+GRAAL=${GRAALVM_HOME:-$JAVA_HOME}
+if [ -z "$GRAAL" ]; then
+    echo "Set GRAALVM_HOME or JAVA_HOME to a GraalVM installation" >&2
+    exit 1
+fi
+# native-image reads META-INF/native-image from every classpath entry
+AGENT="$OUT/agent"
+METADATA="$AGENT/META-INF/native-image/VirtualNumpad"
+CLASSPATH="$OUT/classes:$ROOT/main/resources"
+
+echo "== Compiling"
+rm -rf "$OUT"
+mkdir -p "$OUT/classes" "$OUT/run"
+"$GRAAL/bin/javac" -encoding UTF-8 -d "$OUT/classes" "$ROOT/main/java/VirtualNumpad.java"
+
+# Run from an empty folder so languages, layouts and the icon come from the classpath,
+# as they will in the executable
+echo "== Tracing agent session"
+(cd "$OUT/run" && "$GRAAL/bin/java" -agentlib:native-image-agent=config-output-dir="$METADATA" \
+    -cp "$CLASSPATH" VirtualNumpad --training)
+for config in reflect jni resource; do
+    if [ ! -s "$METADATA/$config-config.json" ]; then
+        echo "Tracing agent wrote no $config-config.json" >&2
+        exit 1
+    fi
+    echo "$config-config.json: $(grep -c '"name"\|"pattern"' "$METADATA/$config-config.json") entries"
+done
+
+echo "== native-image"
+"$GRAAL/bin/native-image" -cp "$CLASSPATH:$AGENT" -o "$OUT/virtualnumpad" VirtualNumpad
+
+# Median of one value printed by --startup-probe
+measure() {
+    label=$1
+    key=$2
+    shift 2
+    samples=""
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        value=$(cd "$OUT/run" && "$@" --startup-probe | sed -n "s/^$key=//p")
+        samples="$samples $value"
+        i=$((i + 1))
+    done
+    median=$(echo "$samples" | tr ' ' '\n' | sed '/^$/d' | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+    echo "$label $key: median $median (samples:$samples)"
+}
+
+echo "== Comparison ($RUNS runs each)"
+for key in first-frame-ms rss-kb; do
+    measure "JVM   " "$key" "$GRAAL/bin/java" -cp "$CLASSPATH" VirtualNumpad
+    measure "native" "$key" "$OUT/virtualnumpad"
+done